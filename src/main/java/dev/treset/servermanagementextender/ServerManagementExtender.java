@@ -1,19 +1,29 @@
 package dev.treset.servermanagementextender;
 
-import dev.treset.servermanagementextender.mixin.ManagementServerMixin;
+import com.mojang.serialization.Codec;
+import dev.treset.servermanagementextender.connection.ManagementConnections;
+import dev.treset.servermanagementextender.notification.NotificationBatcher;
+import dev.treset.servermanagementextender.notification.NotificationFlusher;
+import dev.treset.servermanagementextender.notification.NotificationFrame;
+import dev.treset.servermanagementextender.notification.NotificationTopic;
+import dev.treset.servermanagementextender.request.MainThreadScheduler;
+import dev.treset.servermanagementextender.request.PaginationCursors;
 import net.fabricmc.api.ModInitializer;
 
 import net.minecraft.registry.entry.RegistryEntry;
 import net.minecraft.server.dedicated.management.ManagementServer;
 import net.minecraft.server.dedicated.management.OutgoingRpcMethod;
+import net.minecraft.server.dedicated.management.network.ManagementConnectionHandler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.function.Consumer;
+
 public class ServerManagementExtender implements ModInitializer {
 	public static final String MOD_ID = "server-management-extender";
 	public static final Logger LOGGER = LoggerFactory.getLogger("Server Management Extender");
 
-    private static ManagementServer managementServer;
+    private static volatile ManagementServer managementServer;
 
     public static void init(ManagementServer server) {
         managementServer = server;
@@ -24,19 +34,130 @@ public class ServerManagementExtender implements ModInitializer {
         }
     }
 
+    /**
+     * @return {@code true} if the management server is running and notifications can be sent.
+     */
     public static boolean isInitialized() {
-        return managementServer == null;
+        return managementServer != null;
+    }
+
+    /**
+     * @return The amount of open management connections. Doesn't iterate the connections.
+     */
+    public static int getConnectionCount() {
+        return isInitialized() ? ManagementConnections.count() : 0;
+    }
+
+    /**
+     * Runs a task for every open management connection. Does nothing if the management server isn't initialized.
+     * Can be called from any thread, the connections are taken from {@link ManagementConnections}.
+     * @param task The task to run.
+     */
+    public static void forEachConnection(Consumer<ManagementConnectionHandler> task) {
+        if (!isInitialized()) return;
+        ManagementConnections.forEach(state -> task.accept(state.getConnection()));
     }
 
     public static <T> void notifyAll(
             RegistryEntry.Reference<? extends OutgoingRpcMethod<T, ?>> method,
             T payload
     ) {
-        if (isInitialized()) return;
-        ((ManagementServerMixin)managementServer)
-                .msme$forEachConnection(connection ->
-                        connection.sendNotification(method, payload)
-                );
+        if (!isInitialized()) return;
+        ManagementConnections.forEach(state -> state.getConnection().sendNotification(method, payload));
+    }
+
+    /**
+     * Sends a notification to all connections, encoding the payload only once.
+     * The encoded frame is shared between all connections; connections that can't accept a pre-encoded frame fall back to {@link #notifyAll(RegistryEntry.Reference, Object)}.
+     * @param method The notification method.
+     * @param codec The codec of the notification content. If {@code null}, every connection encodes the payload itself.
+     * @param payload The notification content.
+     * @param <T> The type of object the notification sends.
+     */
+    public static <T> void notifyAll(
+            RegistryEntry.Reference<? extends OutgoingRpcMethod<T, ?>> method,
+            Codec<T> codec,
+            T payload
+    ) {
+        notifyAll(method, codec, payload, null);
+    }
+
+    /**
+     * Sends a notification to all connections subscribed to it, encoding the payload only once.
+     * Nothing is encoded if no connection is subscribed.
+     * @param method The notification method.
+     * @param codec The codec of the notification content. If {@code null}, every connection encodes the payload itself.
+     * @param payload The notification content.
+     * @param topic The subscription topic of the notification. If {@code null}, the notification is sent to all connections.
+     * @param <T> The type of object the notification sends.
+     */
+    public static <T> void notifyAll(
+            RegistryEntry.Reference<? extends OutgoingRpcMethod<T, ?>> method,
+            Codec<T> codec,
+            T payload,
+            NotificationTopic topic
+    ) {
+        if (!isInitialized()) return;
+        if (codec == null && topic == null) {
+            notifyAll(method, payload);
+            return;
+        }
+
+        // Encoded lazily so nothing is serialized if there are no subscribed connections
+        NotificationFrame[] frame = new NotificationFrame[1];
+        boolean[] encoded = new boolean[1];
+        ManagementConnections.forEach(state -> {
+            ManagementConnectionHandler connection = state.getConnection();
+            if (topic != null && !topic.isSubscribed(state)) {
+                return;
+            }
+            if (!encoded[0] && codec != null) {
+                frame[0] = NotificationFrame.encode(method.registryKey().getValue(), codec, payload);
+                if (topic != null) {
+                    frame[0] = topic.prioritize(frame[0]);
+                }
+                encoded[0] = true;
+            }
+            if (frame[0] == null || !frame[0].writeTo(connection)) {
+                connection.sendNotification(method, payload);
+            }
+        });
+    }
+
+    /**
+     * Writes an already encoded notification to all connections subscribed to it.
+     * @param method The notification method.
+     * @param frame The encoded notification.
+     * @param payload The notification content. Only sent to connections that can't accept encoded frames.
+     * @param topic The subscription topic of the notification. If {@code null}, the notification is sent to all connections.
+     * @param <T> The type of object the notification sends.
+     */
+    public static <T> void notifyAll(
+            RegistryEntry.Reference<? extends OutgoingRpcMethod<T, ?>> method,
+            NotificationFrame frame,
+            T payload,
+            NotificationTopic topic
+    ) {
+        if (!isInitialized()) return;
+        NotificationFrame prioritized = topic == null ? frame : topic.prioritize(frame);
+        ManagementConnections.forEach(state -> {
+            if (topic != null && !topic.isSubscribed(state)) {
+                return;
+            }
+            if (!prioritized.writeTo(state.getConnection())) {
+                state.getConnection().sendNotification(method, payload);
+            }
+        });
+    }
+
+    /**
+     * Called at the end of every server tick.
+     */
+    public static void tick() {
+        MainThreadScheduler.drain();
+        PaginationCursors.purgeExpired();
+        NotificationFlusher.flush();
+        NotificationBatcher.flush();
     }
 
 	@Override
@@ -0,0 +1,13 @@
+package dev.treset.servermanagementextender.accessors;
+
+import io.netty.channel.Channel;
+import net.minecraft.server.dedicated.management.dispatch.ManagementHandlerDispatcher;
+import net.minecraft.server.dedicated.management.network.ManagementConnectionId;
+
+public interface ManagementConnectionHandlerAccessor {
+    Channel getChannel();
+
+    ManagementConnectionId getConnectionId();
+
+    ManagementHandlerDispatcher getDispatcher();
+}
@@ -0,0 +1,192 @@
+package dev.treset.servermanagementextender.codec;
+
+import com.mojang.serialization.Codec;
+import com.mojang.serialization.DataResult;
+import com.mojang.serialization.DynamicOps;
+import com.mojang.serialization.MapCodec;
+import com.mojang.serialization.MapLike;
+import com.mojang.serialization.RecordBuilder;
+import dev.treset.servermanagementextender.wrapper.SchemaData;
+
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.RecordComponent;
+import java.lang.reflect.Type;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.WeakHashMap;
+import java.util.stream.Stream;
+
+/**
+ * A record codec reading and creating records through a {@link RecordAccessor} instead of DFU's {@code RecordCodecBuilder}.
+ * <p>
+ * Properties are encoded and decoded like {@code fieldOf} and {@code optionalFieldOf} fields, in the same order,
+ * so the encoded output is identical to the codec built from the same properties by the schema builder.
+ * <p>
+ * The properties are validated against the record components when the codec is created:
+ * the name of each property must match the name of the component at its position, ignoring case, underscores and hyphens,
+ * optional properties must correspond to {@link Optional} components and the codecs of primitive values and generated records must match the component type.
+ * @param <T> The type of the record.
+ */
+public final class GeneratedRecordCodec<T> extends MapCodec<T> {
+    private static final Map<Codec<?>, Class<?>> VALUE_TYPES = Collections.synchronizedMap(new WeakHashMap<>());
+    private static final Map<Class<?>, Class<?>> BOXED = new IdentityHashMap<>();
+
+    static {
+        VALUE_TYPES.put(Codec.BOOL, Boolean.class);
+        VALUE_TYPES.put(Codec.INT, Integer.class);
+        VALUE_TYPES.put(Codec.LONG, Long.class);
+        VALUE_TYPES.put(Codec.FLOAT, Float.class);
+        VALUE_TYPES.put(Codec.DOUBLE, Double.class);
+        VALUE_TYPES.put(Codec.STRING, String.class);
+
+        BOXED.put(boolean.class, Boolean.class);
+        BOXED.put(byte.class, Byte.class);
+        BOXED.put(short.class, Short.class);
+        BOXED.put(char.class, Character.class);
+        BOXED.put(int.class, Integer.class);
+        BOXED.put(long.class, Long.class);
+        BOXED.put(float.class, Float.class);
+        BOXED.put(double.class, Double.class);
+    }
+
+    private final Class<T> recordClass;
+    private final RecordAccessor accessor;
+    private final String[] names;
+    private final Codec<Object>[] codecs;
+    private final boolean[] optional;
+
+    /**
+     * @param recordClass The record class.
+     * @param properties The properties of the record schema. Must contain one property with a codec per record component, in the same order.
+     * @throws IllegalArgumentException If the properties don't match the record components.
+     */
+    @SuppressWarnings("unchecked")
+    public GeneratedRecordCodec(Class<T> recordClass, List<? extends SchemaData<T,?>> properties) throws IllegalArgumentException {
+        this.recordClass = recordClass;
+        this.accessor = RecordAccessors.get(recordClass);
+
+        RecordComponent[] components = recordClass.getRecordComponents();
+        if(components.length != properties.size()) {
+            throw new IllegalArgumentException("Record \"" + recordClass.getSimpleName() + "\" has " + components.length + " components, but the schema has " + properties.size() + " properties");
+        }
+        this.names = new String[components.length];
+        this.codecs = new Codec[components.length];
+        this.optional = new boolean[components.length];
+        for(int i = 0; i < components.length; i++) {
+            SchemaData<T,?> property = properties.get(i);
+            RecordComponent component = components[i];
+            if(property.codec() == null) {
+                throw new IllegalArgumentException("Property \"" + property.name() + "\" has no codec");
+            }
+            if(!normalize(property.name()).equals(normalize(component.getName()))) {
+                throw new IllegalArgumentException("Property \"" + property.name() + "\" doesn't match record component \"" + component.getName() + "\" at position " + i
+                        + ", properties must be declared in the order of the record components and named like them");
+            }
+            Type valueType = component.getGenericType();
+            if(property.optional()) {
+                if(component.getType() != Optional.class) {
+                    throw new IllegalArgumentException("Optional property \"" + property.name() + "\" doesn't match record component of type " + component.getType().getSimpleName());
+                }
+                valueType = valueType instanceof ParameterizedType parameterized ? parameterized.getActualTypeArguments()[0] : null;
+            } else if(component.getType() == Optional.class) {
+                throw new IllegalArgumentException("Property \"" + property.name() + "\" must be optional to match record component of type Optional");
+            }
+            checkType(property, valueType);
+            names[i] = property.name();
+            codecs[i] = (Codec<Object>)property.codec();
+            optional[i] = property.optional();
+        }
+    }
+
+    /**
+     * Creates the codec and remembers that it produces records of this codec's record class, so records containing them can be validated.
+     * @return The codec.
+     */
+    @Override
+    public Codec<T> codec() {
+        Codec<T> codec = super.codec();
+        VALUE_TYPES.put(codec, recordClass);
+        return codec;
+    }
+
+    /**
+     * @return The accessor reading and creating the records.
+     */
+    public RecordAccessor getAccessor() {
+        return accessor;
+    }
+
+    @Override
+    public <O> Stream<O> keys(DynamicOps<O> ops) {
+        return Arrays.stream(names).map(ops::createString);
+    }
+
+    @Override
+    public <O> DataResult<T> decode(DynamicOps<O> ops, MapLike<O> input) {
+        Object[] values = new Object[names.length];
+        for(int i = 0; i < names.length; i++) {
+            O value = input.get(names[i]);
+            if(value == null) {
+                if(optional[i]) {
+                    values[i] = Optional.empty();
+                    continue;
+                }
+                String name = names[i];
+                return DataResult.error(() -> "No key " + name + " in " + input);
+            }
+            DataResult<Object> parsed = codecs[i].parse(ops, value);
+            Optional<DataResult.Error<Object>> error = parsed.error();
+            if(error.isPresent()) {
+                return DataResult.error(error.get().messageSupplier());
+            }
+            Object result = parsed.getOrThrow();
+            values[i] = optional[i] ? Optional.of(result) : result;
+        }
+        return DataResult.success(recordClass.cast(accessor.create(values)));
+    }
+
+    @Override
+    public <O> RecordBuilder<O> encode(T input, DynamicOps<O> ops, RecordBuilder<O> prefix) {
+        Object[] values = accessor.read(input);
+        for(int i = 0; i < names.length; i++) {
+            Object value = values[i];
+            if(optional[i]) {
+                Optional<?> present = (Optional<?>)value;
+                if(present.isEmpty()) {
+                    continue;
+                }
+                value = present.get();
+            }
+            prefix.add(names[i], codecs[i].encodeStart(ops, value));
+        }
+        return prefix;
+    }
+
+    private static void checkType(SchemaData<?,?> property, Type valueType) throws IllegalArgumentException {
+        Class<?> expected = VALUE_TYPES.get(property.codec());
+        Class<?> actual = valueType instanceof Class<?> type ? type
+                : valueType instanceof ParameterizedType parameterized && parameterized.getRawType() instanceof Class<?> raw ? raw
+                : null;
+        // Types of other codecs aren't known at runtime
+        if(expected == null || actual == null) {
+            return;
+        }
+        if(BOXED.getOrDefault(actual, actual) != expected) {
+            throw new IllegalArgumentException("Property \"" + property.name() + "\" encodes " + expected.getSimpleName() + ", but the record component has type " + actual.getSimpleName());
+        }
+    }
+
+    private static String normalize(String name) {
+        return name.replace("_", "").replace("-", "").toLowerCase(Locale.ROOT);
+    }
+
+    @Override
+    public String toString() {
+        return "GeneratedRecordCodec[" + recordClass.getSimpleName() + "]";
+    }
+}
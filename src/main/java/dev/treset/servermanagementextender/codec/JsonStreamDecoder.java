@@ -0,0 +1,20 @@
+package dev.treset.servermanagementextender.codec;
+
+import com.google.gson.stream.JsonReader;
+
+import java.io.IOException;
+
+/**
+ * Reads a value directly from a {@link JsonReader} without building a {@code JsonElement} tree.
+ * @param <T> The type of the value.
+ */
+@FunctionalInterface
+public interface JsonStreamDecoder<T> {
+    /**
+     * @param reader The reader positioned at the value. Positioned after the value once this returns.
+     * @return The read value.
+     * @throws IOException If the reader fails or the JSON is malformed.
+     * @throws IllegalStateException If the value doesn't match the schema. The reader is left in an undefined position.
+     */
+    T read(JsonReader reader) throws IOException, IllegalStateException;
+}
@@ -0,0 +1,213 @@
+package dev.treset.servermanagementextender.codec;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.mojang.serialization.Codec;
+import com.mojang.serialization.JsonOps;
+import dev.treset.servermanagementextender.wrapper.SchemaData;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Finds the {@link JsonStreamDecoder} of a codec.
+ * <p>
+ * Decoders are registered for the primitive codecs, for records built using the schema builder and for lists of them.
+ * Records are read property by property in any order; unknown properties are skipped without being materialized.
+ * Every other codec reads its value into a {@code JsonElement} and decodes it using {@link JsonOps}, so custom schemas keep working.
+ * <p>
+ * Decoders only accept input the codec would decode to the same value. Anything else, like a number sent as a boolean, fails with an {@link IllegalStateException},
+ * so callers can fall back to the codec to get its result or error.
+ */
+public final class JsonStreamDecoders {
+    private static final TypeAdapter<JsonElement> JSON_ELEMENT = new Gson().getAdapter(JsonElement.class);
+    private static final Map<Codec<?>, JsonStreamDecoder<?>> DECODERS = new ConcurrentHashMap<>();
+
+    static {
+        register(Codec.BOOL, reader -> {
+            expect(reader, JsonToken.BOOLEAN);
+            return reader.nextBoolean();
+        });
+        register(Codec.INT, reader -> (int)parseLong(number(reader)));
+        register(Codec.LONG, reader -> parseLong(number(reader)));
+        register(Codec.FLOAT, reader -> Float.parseFloat(number(reader)));
+        register(Codec.DOUBLE, reader -> Double.parseDouble(number(reader)));
+        register(Codec.STRING, reader -> {
+            expect(reader, JsonToken.STRING);
+            return reader.nextString();
+        });
+    }
+
+    private JsonStreamDecoders() {}
+
+    /**
+     * Registers the decoder of a codec, replacing any previous decoder.
+     * @param codec The codec. Nothing is registered if {@code null}.
+     * @param decoder The decoder reading the same values as the codec.
+     * @param <T> The type of the value.
+     */
+    public static <T> void register(Codec<T> codec, JsonStreamDecoder<T> decoder) {
+        if(codec != null) {
+            DECODERS.put(codec, decoder);
+        }
+    }
+
+    /**
+     * Registers the decoder of a record codec built from schema properties.
+     * @param codec The record codec.
+     * @param properties The properties of the record, in order.
+     * @param creator The function creating a record from the values of all properties, in order.
+     * @param <T> The type of the record.
+     */
+    public static <T> void registerRecord(Codec<T> codec, List<? extends SchemaData<T,?>> properties, Function<Object[], T> creator) {
+        if(properties.stream().allMatch(p -> p.codec() != null)) {
+            register(codec, new RecordDecoder<>(properties, creator));
+        }
+    }
+
+    /**
+     * Registers the decoder of a list codec.
+     * @param codec The list codec.
+     * @param elementCodec The codec of the list elements.
+     * @param <E> The type of the list elements.
+     */
+    public static <E> void registerList(Codec<List<E>> codec, Codec<E> elementCodec) {
+        if(elementCodec != null) {
+            register(codec, new ListDecoder<>(elementCodec));
+        }
+    }
+
+    /**
+     * @param codec The codec.
+     * @return The registered decoder of the codec or a decoder using the codec if none is registered.
+     * @param <T> The type of the value.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> JsonStreamDecoder<T> get(Codec<T> codec) {
+        JsonStreamDecoder<?> decoder = DECODERS.get(codec);
+        return decoder != null ? (JsonStreamDecoder<T>)decoder : reader -> codec.parse(JsonOps.INSTANCE, JSON_ELEMENT.read(reader))
+                .getOrThrow(IllegalStateException::new);
+    }
+
+    private static void expect(JsonReader reader, JsonToken token) throws IOException {
+        JsonToken actual = reader.peek();
+        if(actual != token) {
+            throw new IllegalStateException("Expected " + token + " but was " + actual);
+        }
+    }
+
+    private static String number(JsonReader reader) throws IOException {
+        expect(reader, JsonToken.NUMBER);
+        return reader.nextString();
+    }
+
+    // Same conversion as the lazily parsed numbers the codecs get from parsed JSON
+    private static long parseLong(String number) {
+        try {
+            return Long.parseLong(number);
+        } catch (NumberFormatException e) {
+            return new BigDecimal(number).longValue();
+        }
+    }
+
+    private static final class RecordDecoder<T> implements JsonStreamDecoder<T> {
+        private static final Object ABSENT = new Object();
+
+        private final List<? extends SchemaData<T,?>> properties;
+        private final Map<String, Integer> indices = new HashMap<>();
+        private final Function<Object[], T> creator;
+        // Resolved on first use, so properties may reference schemas that are registered later, like recursive ones
+        private volatile JsonStreamDecoder<Object>[] decoders;
+
+        private RecordDecoder(List<? extends SchemaData<T,?>> properties, Function<Object[], T> creator) {
+            this.properties = properties;
+            this.creator = creator;
+            for(int i = 0; i < properties.size(); i++) {
+                indices.put(properties.get(i).name(), i);
+            }
+        }
+
+        @Override
+        public T read(JsonReader reader) throws IOException {
+            JsonStreamDecoder<Object>[] current = decoders();
+            Object[] values = new Object[current.length];
+            Arrays.fill(values, ABSENT);
+
+            expect(reader, JsonToken.BEGIN_OBJECT);
+            reader.beginObject();
+            while(reader.hasNext()) {
+                Integer index = indices.get(reader.nextName());
+                if(index == null) {
+                    reader.skipValue();
+                } else if(reader.peek() == JsonToken.NULL) {
+                    // Null properties are treated as missing, like by the codec
+                    reader.nextNull();
+                    values[index] = ABSENT;
+                } else {
+                    values[index] = current[index].read(reader);
+                }
+            }
+            reader.endObject();
+
+            for(int i = 0; i < values.length; i++) {
+                SchemaData<T,?> property = properties.get(i);
+                if(property.optional()) {
+                    values[i] = values[i] == ABSENT ? Optional.empty() : Optional.of(values[i]);
+                } else if(values[i] == ABSENT) {
+                    throw new IllegalStateException("No key " + property.name());
+                }
+            }
+            return creator.apply(values);
+        }
+
+        @SuppressWarnings("unchecked")
+        private JsonStreamDecoder<Object>[] decoders() {
+            JsonStreamDecoder<Object>[] current = decoders;
+            if(current == null) {
+                current = new JsonStreamDecoder[properties.size()];
+                for(int i = 0; i < current.length; i++) {
+                    current[i] = get((Codec<Object>)properties.get(i).codec());
+                }
+                decoders = current;
+            }
+            return current;
+        }
+    }
+
+    private static final class ListDecoder<E> implements JsonStreamDecoder<List<E>> {
+        private final Codec<E> elementCodec;
+        private volatile JsonStreamDecoder<E> elementDecoder;
+
+        private ListDecoder(Codec<E> elementCodec) {
+            this.elementCodec = elementCodec;
+        }
+
+        @Override
+        public List<E> read(JsonReader reader) throws IOException {
+            JsonStreamDecoder<E> decoder = elementDecoder;
+            if(decoder == null) {
+                decoder = get(elementCodec);
+                elementDecoder = decoder;
+            }
+            expect(reader, JsonToken.BEGIN_ARRAY);
+            List<E> list = new ArrayList<>();
+            reader.beginArray();
+            while(reader.hasNext()) {
+                list.add(decoder.read(reader));
+            }
+            reader.endArray();
+            return List.copyOf(list);
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package dev.treset.servermanagementextender.codec;
+
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+/**
+ * Writes a value directly to a {@link JsonWriter} without building a {@code JsonElement} tree.
+ * @param <T> The type of the value.
+ */
+@FunctionalInterface
+public interface JsonStreamEncoder<T> {
+    /**
+     * @param writer The writer to write the value to.
+     * @param value The value to write.
+     * @throws IOException If the writer fails.
+     * @throws IllegalStateException If the value can't be encoded.
+     */
+    void write(JsonWriter writer, T value) throws IOException, IllegalStateException;
+}
@@ -0,0 +1,199 @@
+package dev.treset.servermanagementextender.codec;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.Strictness;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonWriter;
+import com.mojang.serialization.Codec;
+import com.mojang.serialization.JsonOps;
+import dev.treset.servermanagementextender.wrapper.SchemaData;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufOutputStream;
+import io.netty.buffer.Unpooled;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Finds the {@link JsonStreamEncoder} of a codec.
+ * <p>
+ * Encoders are registered for the primitive codecs, for records built using the schema builder and for lists of them.
+ * Every other codec is encoded into a {@code JsonElement} using {@link JsonOps} and then written, so custom schemas keep working.
+ * The written JSON is identical to serializing the element created by the codec.
+ */
+public final class JsonStreamEncoders {
+    private static final TypeAdapter<JsonElement> JSON_ELEMENT = new Gson().getAdapter(JsonElement.class);
+    private static final Map<Codec<?>, JsonStreamEncoder<?>> ENCODERS = new ConcurrentHashMap<>();
+
+    static {
+        JsonStreamEncoder<Boolean> bool = (writer, value) -> writer.value((boolean)requireNonNull(value));
+        JsonStreamEncoder<Number> number = (writer, value) -> writer.value(requireNonNull(value));
+        JsonStreamEncoder<String> string = (writer, value) -> writer.value(requireNonNull(value));
+        register(Codec.BOOL, bool);
+        register(Codec.INT, number::write);
+        register(Codec.LONG, number::write);
+        register(Codec.FLOAT, number::write);
+        register(Codec.DOUBLE, number::write);
+        register(Codec.STRING, string);
+    }
+
+    private JsonStreamEncoders() {}
+
+    /**
+     * Registers the encoder of a codec, replacing any previous encoder.
+     * @param codec The codec. Nothing is registered if {@code null}.
+     * @param encoder The encoder writing the same JSON as the codec.
+     * @param <T> The type of the value.
+     */
+    public static <T> void register(Codec<T> codec, JsonStreamEncoder<T> encoder) {
+        if(codec != null) {
+            ENCODERS.put(codec, encoder);
+        }
+    }
+
+    /**
+     * Registers the encoder of a record codec built from schema properties.
+     * @param codec The record codec.
+     * @param properties The properties of the record, in order.
+     * @param accessor The accessor reading all properties at once or {@code null} to use the property getters.
+     * @param <T> The type of the record.
+     */
+    public static <T> void registerRecord(Codec<T> codec, List<? extends SchemaData<T,?>> properties, RecordAccessor accessor) {
+        if(properties.stream().allMatch(p -> p.codec() != null && (accessor != null || p.getter() != null))) {
+            register(codec, new RecordEncoder<>(properties, accessor));
+        }
+    }
+
+    /**
+     * Registers the encoder of a list codec.
+     * @param codec The list codec.
+     * @param elementCodec The codec of the list elements.
+     * @param <E> The type of the list elements.
+     */
+    public static <E> void registerList(Codec<List<E>> codec, Codec<E> elementCodec) {
+        if(elementCodec != null) {
+            register(codec, new ListEncoder<>(elementCodec));
+        }
+    }
+
+    /**
+     * @param codec The codec.
+     * @return The registered encoder of the codec or an encoder using the codec if none is registered.
+     * @param <T> The type of the value.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> JsonStreamEncoder<T> get(Codec<T> codec) {
+        JsonStreamEncoder<?> encoder = ENCODERS.get(codec);
+        return encoder != null ? (JsonStreamEncoder<T>)encoder : (writer, value) -> JSON_ELEMENT.write(writer, codec.encodeStart(JsonOps.INSTANCE, value)
+                .getOrThrow(IllegalStateException::new));
+    }
+
+    /**
+     * Writes a value into a new buffer, surrounded by raw prefix and suffix strings.
+     * @param codec The codec of the value.
+     * @param value The value to write.
+     * @param prefix Written before the value without escaping.
+     * @param suffix Written after the value without escaping.
+     * @return A buffer containing the UTF-8 encoded JSON.
+     * @param <T> The type of the value.
+     * @throws IllegalStateException If the value can't be encoded.
+     */
+    public static <T> ByteBuf encode(Codec<T> codec, T value, String prefix, String suffix) throws IllegalStateException {
+        ByteBuf buffer = Unpooled.buffer();
+        try(Writer out = new OutputStreamWriter(new ByteBufOutputStream(buffer), StandardCharsets.UTF_8)) {
+            out.write(prefix);
+            JsonWriter writer = new JsonWriter(out);
+            writer.setStrictness(Strictness.LENIENT);
+            get(codec).write(writer, value);
+            writer.flush();
+            out.write(suffix);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return buffer;
+    }
+
+    private static <T> T requireNonNull(T value) {
+        if(value == null) {
+            throw new IllegalStateException("Value is null");
+        }
+        return value;
+    }
+
+    private static final class RecordEncoder<T> implements JsonStreamEncoder<T> {
+        private final List<? extends SchemaData<T,?>> properties;
+        private final RecordAccessor accessor;
+        // Resolved on first use, so properties may reference schemas that are registered later, like recursive ones
+        private volatile JsonStreamEncoder<Object>[] encoders;
+
+        private RecordEncoder(List<? extends SchemaData<T,?>> properties, RecordAccessor accessor) {
+            this.properties = properties;
+            this.accessor = accessor;
+        }
+
+        @Override
+        public void write(JsonWriter writer, T value) throws IOException {
+            JsonStreamEncoder<Object>[] current = encoders();
+            Object[] values = accessor == null ? null : accessor.read(value);
+            writer.beginObject();
+            for(int i = 0; i < current.length; i++) {
+                SchemaData<T,?> property = properties.get(i);
+                Object propertyValue = values == null ? property.getter().apply(value) : values[i];
+                if(property.optional()) {
+                    Optional<?> present = (Optional<?>)propertyValue;
+                    if(present.isEmpty()) {
+                        continue;
+                    }
+                    propertyValue = present.get();
+                }
+                writer.name(property.name());
+                current[i].write(writer, propertyValue);
+            }
+            writer.endObject();
+        }
+
+        @SuppressWarnings("unchecked")
+        private JsonStreamEncoder<Object>[] encoders() {
+            JsonStreamEncoder<Object>[] current = encoders;
+            if(current == null) {
+                current = new JsonStreamEncoder[properties.size()];
+                for(int i = 0; i < current.length; i++) {
+                    current[i] = get((Codec<Object>)properties.get(i).codec());
+                }
+                encoders = current;
+            }
+            return current;
+        }
+    }
+
+    private static final class ListEncoder<E> implements JsonStreamEncoder<List<E>> {
+        private final Codec<E> elementCodec;
+        private volatile JsonStreamEncoder<E> elementEncoder;
+
+        private ListEncoder(Codec<E> elementCodec) {
+            this.elementCodec = elementCodec;
+        }
+
+        @Override
+        public void write(JsonWriter writer, List<E> value) throws IOException {
+            JsonStreamEncoder<E> encoder = elementEncoder;
+            if(encoder == null) {
+                encoder = get(elementCodec);
+                elementEncoder = encoder;
+            }
+            writer.beginArray();
+            for(E element : requireNonNull(value)) {
+                encoder.write(writer, element);
+            }
+            writer.endArray();
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package dev.treset.servermanagementextender.codec;
+
+/**
+ * Reads the components of a record and creates records from component values without going through getter and constructor functions.
+ * <p>
+ * Implemented by classes generated for each record class by {@link RecordAccessors}. Primitive components are boxed.
+ */
+public interface RecordAccessor {
+    /**
+     * @param record The record to read. Must be an instance of the record class of this accessor.
+     * @return The values of all components of the record, in declaration order.
+     */
+    Object[] read(Object record);
+
+    /**
+     * Creates a record using its canonical constructor.
+     * @param values The values of all components, in declaration order.
+     * @return The created record.
+     */
+    Object create(Object[] values);
+}
@@ -0,0 +1,168 @@
+package dev.treset.servermanagementextender.codec;
+
+import dev.treset.servermanagementextender.ServerManagementExtender;
+import javassist.CannotCompileException;
+import javassist.ClassPool;
+import javassist.CtClass;
+import javassist.CtNewConstructor;
+import javassist.CtNewMethod;
+import javassist.LoaderClassPath;
+import javassist.NotFoundException;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.RecordComponent;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Creates {@link RecordAccessor}s for record classes.
+ * <p>
+ * The accessor of a record class is generated using javassist and defined in the package of the record class, so it calls the component methods and the canonical constructor directly.
+ * If the record class or its constructor is private or the accessor can't be generated, a slower accessor using method handles is used instead.
+ * Accessors are created once per record class.
+ */
+public final class RecordAccessors {
+    private static final Map<Class<?>, RecordAccessor> ACCESSORS = new ConcurrentHashMap<>();
+
+    private RecordAccessors() {}
+
+    /**
+     * @param recordClass The record class.
+     * @return The accessor of the record class.
+     * @throws IllegalArgumentException If the class is not a record.
+     */
+    public static RecordAccessor get(Class<?> recordClass) throws IllegalArgumentException {
+        if(!recordClass.isRecord()) {
+            throw new IllegalArgumentException("Class \"" + recordClass.getSimpleName() + "\" is not a record");
+        }
+        return ACCESSORS.computeIfAbsent(recordClass, RecordAccessors::create);
+    }
+
+    private static RecordAccessor create(Class<?> recordClass) {
+        if(isAccessible(recordClass)) {
+            try {
+                return generate(recordClass);
+            } catch (NotFoundException | CannotCompileException | IOException | ReflectiveOperationException | LinkageError e) {
+                ServerManagementExtender.LOGGER.warn("Failed to generate record accessor for {}, falling back to method handles", recordClass.getName(), e);
+            }
+        }
+        return reflective(recordClass);
+    }
+
+    private static boolean isAccessible(Class<?> recordClass) {
+        for(Class<?> c = recordClass; c != null; c = c.getEnclosingClass()) {
+            if(Modifier.isPrivate(c.getModifiers())) {
+                return false;
+            }
+        }
+        try {
+            return !Modifier.isPrivate(getCanonicalConstructor(recordClass).getModifiers());
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    private static RecordAccessor generate(Class<?> recordClass) throws NotFoundException, CannotCompileException, IOException, ReflectiveOperationException {
+        RecordComponent[] components = recordClass.getRecordComponents();
+        String recordName = recordClass.getName();
+
+        StringBuilder read = new StringBuilder("public Object[] read(Object record) {")
+                .append(recordName).append(" r = (").append(recordName).append(")$1;")
+                .append("Object[] values = new Object[").append(components.length).append("];");
+        for(int i = 0; i < components.length; i++) {
+            read.append("values[").append(i).append("] = ($w)r.").append(components[i].getName()).append("();");
+        }
+        read.append("return values;}");
+
+        StringBuilder create = new StringBuilder("public Object create(Object[] values) {return new ").append(recordName).append("(");
+        for(int i = 0; i < components.length; i++) {
+            if(i > 0) {
+                create.append(',');
+            }
+            create.append(unboxed(components[i].getType(), "values[" + i + "]"));
+        }
+        create.append(");}");
+
+        ClassPool pool = new ClassPool(true);
+        pool.appendClassPath(new LoaderClassPath(recordClass.getClassLoader()));
+        pool.appendClassPath(new LoaderClassPath(RecordAccessor.class.getClassLoader()));
+        CtClass accessor = pool.makeClass(recordName + "$MsmeRecordAccessor");
+        try {
+            accessor.addInterface(pool.get(RecordAccessor.class.getName()));
+            accessor.addConstructor(CtNewConstructor.defaultConstructor(accessor));
+            accessor.addMethod(CtNewMethod.make(read.toString(), accessor));
+            accessor.addMethod(CtNewMethod.make(create.toString(), accessor));
+            byte[] bytecode = accessor.toBytecode();
+            Class<?> accessorClass = MethodHandles.privateLookupIn(recordClass, MethodHandles.lookup()).defineClass(bytecode);
+            return (RecordAccessor)accessorClass.getDeclaredConstructor().newInstance();
+        } finally {
+            accessor.detach();
+        }
+    }
+
+    private static String unboxed(Class<?> type, String value) {
+        if(!type.isPrimitive()) {
+            return "(" + type.getTypeName() + ")" + value;
+        }
+        String wrapper = switch(type.getName()) {
+            case "int" -> "Integer";
+            case "char" -> "Character";
+            default -> Character.toUpperCase(type.getName().charAt(0)) + type.getName().substring(1);
+        };
+        return "((java.lang." + wrapper + ")" + value + ")." + type.getName() + "Value()";
+    }
+
+    private static Constructor<?> getCanonicalConstructor(Class<?> recordClass) throws NoSuchMethodException {
+        Class<?>[] types = Arrays.stream(recordClass.getRecordComponents()).map(RecordComponent::getType).toArray(Class<?>[]::new);
+        return recordClass.getDeclaredConstructor(types);
+    }
+
+    private static RecordAccessor reflective(Class<?> recordClass) {
+        try {
+            RecordComponent[] components = recordClass.getRecordComponents();
+            MethodHandle[] getters = new MethodHandle[components.length];
+            for(int i = 0; i < components.length; i++) {
+                components[i].getAccessor().setAccessible(true);
+                getters[i] = MethodHandles.lookup().unreflect(components[i].getAccessor());
+            }
+            Constructor<?> constructor = getCanonicalConstructor(recordClass);
+            constructor.setAccessible(true);
+            MethodHandle canonical = MethodHandles.lookup().unreflectConstructor(constructor)
+                    .asSpreader(Object[].class, components.length);
+            return new RecordAccessor() {
+                @Override
+                public Object[] read(Object record) {
+                    Object[] values = new Object[getters.length];
+                    try {
+                        for(int i = 0; i < getters.length; i++) {
+                            values[i] = getters[i].invoke(record);
+                        }
+                    } catch (RuntimeException | Error e) {
+                        throw e;
+                    } catch (Throwable e) {
+                        throw new IllegalStateException("Failed to read record " + recordClass.getName(), e);
+                    }
+                    return values;
+                }
+
+                @Override
+                public Object create(Object[] values) {
+                    try {
+                        return canonical.invoke(values);
+                    } catch (RuntimeException | Error e) {
+                        throw e;
+                    } catch (Throwable e) {
+                        throw new IllegalStateException("Failed to create record " + recordClass.getName(), e);
+                    }
+                }
+            };
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            throw new IllegalArgumentException("Failed to access record \"" + recordClass.getSimpleName() + "\"", e);
+        }
+    }
+}
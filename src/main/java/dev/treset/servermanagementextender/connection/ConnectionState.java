@@ -0,0 +1,81 @@
+package dev.treset.servermanagementextender.connection;
+
+import dev.treset.servermanagementextender.accessors.ManagementConnectionHandlerAccessor;
+import dev.treset.servermanagementextender.notification.OutboundQueue;
+import io.netty.channel.Channel;
+import net.minecraft.server.dedicated.management.network.ManagementConnectionHandler;
+import net.minecraft.server.dedicated.management.network.ManagementConnectionId;
+
+/**
+ * State the library keeps for each open management connection.
+ */
+public final class ConnectionState {
+    private final ManagementConnectionHandler connection;
+    private final ManagementConnectionId id;
+    private final OutboundQueue outbound;
+
+    // null if the connection receives all notifications
+    private volatile long[] subscriptions;
+
+    ConnectionState(ManagementConnectionHandler connection, ManagementConnectionId id) {
+        this.connection = connection;
+        this.id = id;
+        Channel channel = ((ManagementConnectionHandlerAccessor)connection).getChannel();
+        this.outbound = channel == null ? null : new OutboundQueue(channel, this);
+    }
+
+    public ManagementConnectionHandler getConnection() {
+        return connection;
+    }
+
+    public ManagementConnectionId getId() {
+        return id;
+    }
+
+    /**
+     * @return The queue bounding notifications waiting to be written to this connection or {@code null} if the channel of the connection isn't accessible.
+     */
+    public OutboundQueue getOutbound() {
+        return outbound;
+    }
+
+    /**
+     * @return {@code true} if the connection has subscribed to specific notifications instead of receiving all of them.
+     */
+    public boolean isFiltered() {
+        return subscriptions != null;
+    }
+
+    /**
+     * Checks whether this connection receives a notification. Constant time.
+     * @param index The subscription index of the notification.
+     * @return {@code true} if the connection receives the notification.
+     */
+    public boolean isSubscribed(int index) {
+        long[] bits = subscriptions;
+        if(bits == null) {
+            return true;
+        }
+        int word = index >>> 6;
+        return word < bits.length && (bits[word] & (1L << index)) != 0;
+    }
+
+    /**
+     * @return The subscription bits of this connection or {@code null} if the connection receives all notifications. Must not be modified.
+     */
+    public long[] getSubscriptions() {
+        return subscriptions;
+    }
+
+    /**
+     * Replaces the subscriptions of this connection. Callers must synchronize on this state.
+     * @param subscriptions The new subscription bits or {@code null} to receive all notifications.
+     */
+    public void setSubscriptions(long[] subscriptions) {
+        boolean wasFiltered = this.subscriptions != null;
+        this.subscriptions = subscriptions;
+        if(wasFiltered != (subscriptions != null)) {
+            ManagementConnections.onFilterChanged(subscriptions != null);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package dev.treset.servermanagementextender.connection;
+
+import dev.treset.servermanagementextender.accessors.ManagementConnectionHandlerAccessor;
+import net.minecraft.server.dedicated.management.network.ManagementConnectionHandler;
+import net.minecraft.server.dedicated.management.network.ManagementConnectionId;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Keeps track of the open management connections and their state.
+ */
+public final class ManagementConnections {
+    private static final Map<ManagementConnectionId, ConnectionState> CONNECTIONS = new ConcurrentHashMap<>();
+    private static final AtomicInteger COUNT = new AtomicInteger();
+    private static final AtomicInteger FILTERED = new AtomicInteger();
+    private static final List<Consumer<ConnectionState>> CLOSE_LISTENERS = new CopyOnWriteArrayList<>();
+
+    private ManagementConnections() {}
+
+    public static void onConnected(ManagementConnectionHandler connection) {
+        ManagementConnectionId id = ((ManagementConnectionHandlerAccessor)connection).getConnectionId();
+        if(CONNECTIONS.put(id, new ConnectionState(connection, id)) == null) {
+            COUNT.incrementAndGet();
+        }
+    }
+
+    public static void onDisconnected(ManagementConnectionHandler connection) {
+        ConnectionState state = CONNECTIONS.remove(((ManagementConnectionHandlerAccessor)connection).getConnectionId());
+        if(state == null) {
+            return;
+        }
+        COUNT.decrementAndGet();
+        if(state.getOutbound() != null) {
+            state.getOutbound().close();
+        }
+        for(Consumer<ConnectionState> listener : CLOSE_LISTENERS) {
+            listener.accept(state);
+        }
+        synchronized(state) {
+            state.setSubscriptions(null);
+        }
+    }
+
+    static void onFilterChanged(boolean filtered) {
+        if(filtered) {
+            FILTERED.incrementAndGet();
+        } else {
+            FILTERED.decrementAndGet();
+        }
+    }
+
+    /**
+     * Registers a listener that is called when a connection is closed.
+     * @param listener The listener getting the state of the closed connection.
+     */
+    public static void addCloseListener(Consumer<ConnectionState> listener) {
+        CLOSE_LISTENERS.add(listener);
+    }
+
+    /**
+     * @param id The id of the connection.
+     * @return The state of the connection or {@code null} if the connection isn't open.
+     */
+    public static ConnectionState get(ManagementConnectionId id) {
+        return CONNECTIONS.get(id);
+    }
+
+    /**
+     * @param connection The connection.
+     * @return The state of the connection or {@code null} if the connection isn't open.
+     */
+    public static ConnectionState get(ManagementConnectionHandler connection) {
+        return CONNECTIONS.get(((ManagementConnectionHandlerAccessor)connection).getConnectionId());
+    }
+
+    /**
+     * Runs a task for every open connection.
+     * Iterates the connections tracked by the library instead of the connection list of the management server, so it can be called from any thread.
+     * @param task The task getting the state of each connection.
+     */
+    public static void forEach(Consumer<ConnectionState> task) {
+        for(ConnectionState state : CONNECTIONS.values()) {
+            task.accept(state);
+        }
+    }
+
+    /**
+     * @return The amount of open connections. Cached, doesn't iterate the connections.
+     */
+    public static int count() {
+        return COUNT.get();
+    }
+
+    /**
+     * @return The amount of open connections that receive all notifications.
+     */
+    public static int unfilteredCount() {
+        return COUNT.get() - FILTERED.get();
+    }
+}
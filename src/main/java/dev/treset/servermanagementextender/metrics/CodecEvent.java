@@ -0,0 +1,35 @@
+package dev.treset.servermanagementextender.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Java Flight Recorder event of encoding or decoding a request parameter, response or notification. Disabled by default.
+ */
+@Name("dev.treset.servermanagementextender.Codec")
+@Label("Management Codec")
+@Description("Encoding or decoding a value of a management schema")
+@Category({"Minecraft", "Server Management"})
+@Enabled(false)
+@StackTrace(false)
+public final class CodecEvent extends Event {
+    public static final String ENCODE = "encode";
+    public static final String DECODE = "decode";
+
+    @Label("Method")
+    public String method;
+
+    @Label("Operation")
+    public String operation;
+
+    @Label("Size")
+    @Description("The size of the encoded value or -1 if it is unknown")
+    @DataAmount
+    public long size;
+}
@@ -0,0 +1,106 @@
+package dev.treset.servermanagementextender.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free histogram of durations in nanoseconds with logarithmic buckets.
+ * <p>
+ * Every power of two is split into 16 linear sub-buckets, so recorded values are accurate to about 6% over the whole range of {@code long}.
+ * Recording a value is a single atomic increment; the histogram never allocates after creation.
+ */
+public final class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder total = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Records a duration.
+     * @param nanos The duration in nanoseconds. Negative values are recorded as 0.
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts.incrementAndGet(index(value));
+        total.add(value);
+        if(value > max.get()) {
+            max.accumulateAndGet(value, Math::max);
+        }
+    }
+
+    /**
+     * @return A snapshot of the recorded durations.
+     */
+    public Snapshot snapshot() {
+        long[] snapshot = new long[BUCKETS];
+        long count = 0;
+        for(int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            count += snapshot[i];
+        }
+        long maxValue = max.get();
+        return new Snapshot(
+                count,
+                count == 0 ? 0 : total.sum() / count,
+                percentile(snapshot, count, 0.5, maxValue),
+                percentile(snapshot, count, 0.9, maxValue),
+                percentile(snapshot, count, 0.99, maxValue),
+                maxValue
+        );
+    }
+
+    private static int index(long value) {
+        int magnitude = 63 - Long.numberOfLeadingZeros(value);
+        if(magnitude < SUB_BUCKET_BITS) {
+            return (int)value;
+        }
+        int shift = magnitude - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int)((value >>> shift) - SUB_BUCKETS);
+    }
+
+    private static long upperBound(int index) {
+        if(index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = index / SUB_BUCKETS - 1;
+        long subBucket = index % SUB_BUCKETS + SUB_BUCKETS;
+        return ((subBucket + 1) << shift) - 1;
+    }
+
+    private static long percentile(long[] counts, long count, double percentile, long max) {
+        if(count == 0) {
+            return 0;
+        }
+        long target = (long)Math.ceil(count * percentile);
+        long seen = 0;
+        for(int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if(seen >= target) {
+                return Math.min(upperBound(i), max);
+            }
+        }
+        return max;
+    }
+
+    /**
+     * A snapshot of a latency histogram. All durations are in nanoseconds.
+     * @param count The amount of recorded durations.
+     * @param mean The average duration.
+     * @param p50 The median duration.
+     * @param p90 The 90th percentile.
+     * @param p99 The 99th percentile.
+     * @param max The longest duration.
+     */
+    public record Snapshot(
+            long count,
+            long mean,
+            long p50,
+            long p90,
+            long p99,
+            long max
+    ) {}
+}
@@ -0,0 +1,73 @@
+package dev.treset.servermanagementextender.metrics;
+
+import net.minecraft.util.Identifier;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free call statistics of a single request method.
+ * <p>
+ * Decoding the parameter, running the handler and encoding the result are recorded in separate histograms.
+ * Requests answered from a cache only record the decode time.
+ */
+public final class MethodMetrics {
+    private final Identifier method;
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LatencyHistogram decode = new LatencyHistogram();
+    private final LatencyHistogram handler = new LatencyHistogram();
+    private final LatencyHistogram encode = new LatencyHistogram();
+
+    MethodMetrics(Identifier method) {
+        this.method = method;
+    }
+
+    public Identifier getMethod() {
+        return method;
+    }
+
+    public void recordCall() {
+        calls.increment();
+    }
+
+    public void recordError() {
+        errors.increment();
+    }
+
+    public void recordDecode(long nanos) {
+        decode.record(nanos);
+    }
+
+    public void recordHandler(long nanos) {
+        handler.record(nanos);
+    }
+
+    public void recordEncode(long nanos) {
+        encode.record(nanos);
+    }
+
+    /**
+     * @return A snapshot of the statistics of this method.
+     */
+    public Snapshot snapshot() {
+        return new Snapshot(method, calls.sum(), errors.sum(), decode.snapshot(), handler.snapshot(), encode.snapshot());
+    }
+
+    /**
+     * A snapshot of the call statistics of a request method.
+     * @param method The identifier of the method.
+     * @param calls The amount of requests received.
+     * @param errors The amount of requests answered with an error.
+     * @param decode The durations of decoding the parameter.
+     * @param handler The durations from calling the handler until its result was available.
+     * @param encode The durations of encoding the result.
+     */
+    public record Snapshot(
+            Identifier method,
+            long calls,
+            long errors,
+            LatencyHistogram.Snapshot decode,
+            LatencyHistogram.Snapshot handler,
+            LatencyHistogram.Snapshot encode
+    ) {}
+}
@@ -0,0 +1,48 @@
+package dev.treset.servermanagementextender.metrics;
+
+import dev.treset.servermanagementextender.ServerManagementExtender;
+import dev.treset.servermanagementextender.notification.NotificationFlusher;
+import dev.treset.servermanagementextender.wrapper.RpcMethodBuilder;
+import dev.treset.servermanagementextender.wrapper.ServerManagementInitialized;
+
+import java.time.Duration;
+
+/**
+ * Registers the RPC method returning the statistics of the library and, if enabled, periodically sends them as a notification.
+ */
+@ServerManagementInitialized
+public class MetricsMethods {
+    // 0 while the notification is disabled
+    private static volatile long intervalNanos;
+    private static long lastSnapshot = System.nanoTime();
+
+    static {
+        RpcMethodBuilder.of(MetricsSnapshot.SCHEMA)
+                .description("Get the request, notification and connection statistics of the library")
+                .identifier(ServerManagementExtender.MOD_ID, "metrics/get")
+                .build(dispatcher -> MetricsSnapshot.capture());
+
+        NotificationFlusher.register(MetricsMethods::sendSnapshot);
+    }
+
+    /**
+     * Sets how often the {@code metrics/snapshot} notification is sent. The notification is disabled by default.
+     * @param interval The interval between two snapshots or {@code null} to disable the notification.
+     */
+    public static void setSnapshotInterval(Duration interval) {
+        if(interval != null && (interval.isNegative() || interval.isZero())) {
+            throw new IllegalArgumentException("Interval must be positive: " + interval);
+        }
+        intervalNanos = interval == null ? 0 : interval.toNanos();
+    }
+
+    private static void sendSnapshot() {
+        long interval = intervalNanos;
+        long now = System.nanoTime();
+        if(interval == 0 || now - lastSnapshot < interval) {
+            return;
+        }
+        lastSnapshot = now;
+        MetricsSnapshot.HANDLER.sendLazy(MetricsSnapshot::capture);
+    }
+}
@@ -0,0 +1,160 @@
+package dev.treset.servermanagementextender.metrics;
+
+import dev.treset.servermanagementextender.ServerManagementExtender;
+import dev.treset.servermanagementextender.connection.ManagementConnections;
+import dev.treset.servermanagementextender.notification.OutboundQueue;
+import dev.treset.servermanagementextender.wrapper.ManagementSchema;
+import dev.treset.servermanagementextender.wrapper.RpcNotificationHandler;
+import dev.treset.servermanagementextender.wrapper.ServerManagementInitialized;
+
+import java.util.List;
+
+/**
+ * The statistics of the library, returned by the {@code metrics/get} method and sent in the {@code metrics/snapshot} notification.
+ * All durations are in nanoseconds.
+ * @param connections The amount of open connections.
+ * @param subscribedConnections The amount of open connections that subscribed to specific notifications.
+ * @param outboundQueueDepth The amount of notifications waiting to be written to any connection.
+ * @param outboundDrops The amount of notifications dropped because the outbound queue of a connection was full.
+ * @param notificationsWritten The amount of notification frames written by the library.
+ * @param notificationBytes The size of all notification frames written by the library in bytes.
+ * @param responsesWritten The amount of responses written by the library.
+ * @param responseBytes The size of all responses written by the library in bytes.
+ * @param methods The statistics of all request methods handled by the library.
+ * @param notifications The statistics of all notifications sent using a notification handler.
+ */
+@ServerManagementInitialized
+public record MetricsSnapshot(
+        int connections,
+        int subscribedConnections,
+        int outboundQueueDepth,
+        long outboundDrops,
+        long notificationsWritten,
+        long notificationBytes,
+        long responsesWritten,
+        long responseBytes,
+        List<MethodStatistics> methods,
+        List<NotificationStatistics> notifications
+) {
+    public static final ManagementSchema<MetricsSnapshot> SCHEMA = ManagementSchema
+            .<MetricsSnapshot>builder(ServerManagementExtender.MOD_ID, "metrics")
+            .property("connections", ManagementSchema.INTEGER, MetricsSnapshot::connections)
+            .property("subscribed_connections", ManagementSchema.INTEGER, MetricsSnapshot::subscribedConnections)
+            .property("outbound_queue_depth", ManagementSchema.INTEGER, MetricsSnapshot::outboundQueueDepth)
+            .property("outbound_drops", ManagementSchema.LONG, MetricsSnapshot::outboundDrops)
+            .property("notifications_written", ManagementSchema.LONG, MetricsSnapshot::notificationsWritten)
+            .property("notification_bytes", ManagementSchema.LONG, MetricsSnapshot::notificationBytes)
+            .property("responses_written", ManagementSchema.LONG, MetricsSnapshot::responsesWritten)
+            .property("response_bytes", ManagementSchema.LONG, MetricsSnapshot::responseBytes)
+            .property("methods", MethodStatistics.SCHEMA.asList(), MetricsSnapshot::methods)
+            .property("notifications", NotificationStatistics.SCHEMA.asList(), MetricsSnapshot::notifications)
+            .build(MetricsSnapshot.class);
+
+    public static final RpcNotificationHandler<MetricsSnapshot> HANDLER = RpcNotificationHandler
+            .builder(SCHEMA)
+            .description("Periodic snapshot of the request, notification and connection statistics of the library")
+            .identifier(ServerManagementExtender.MOD_ID, "metrics/snapshot")
+            .build();
+
+    /**
+     * Assembles a snapshot from the counters of the library. Doesn't iterate the connections.
+     * @return The current statistics.
+     */
+    public static MetricsSnapshot capture() {
+        int connections = ManagementConnections.count();
+        return new MetricsSnapshot(
+                connections,
+                connections - ManagementConnections.unfilteredCount(),
+                OutboundQueue.getTotalDepth(),
+                OutboundQueue.getDroppedCount(),
+                TransportMetrics.getNotificationCount(),
+                TransportMetrics.getNotificationBytes(),
+                TransportMetrics.getResponseCount(),
+                TransportMetrics.getResponseBytes(),
+                RequestMetrics.all().stream().map(metrics -> MethodStatistics.of(metrics.snapshot())).toList(),
+                NotificationMetrics.all().stream().map(metrics -> NotificationStatistics.of(metrics.snapshot())).toList()
+        );
+    }
+
+    /**
+     * The statistics of a request method.
+     * @param method The identifier of the method.
+     * @param calls The amount of requests received.
+     * @param errors The amount of requests answered with an error.
+     * @param decodeMeanNs The mean duration of decoding the parameter.
+     * @param handlerMeanNs The mean duration of running the handler.
+     * @param handlerP50Ns The median duration of running the handler.
+     * @param handlerP90Ns The 90th percentile duration of running the handler.
+     * @param handlerP99Ns The 99th percentile duration of running the handler.
+     * @param handlerMaxNs The maximum duration of running the handler.
+     * @param encodeMeanNs The mean duration of encoding the result.
+     */
+    public record MethodStatistics(
+            String method,
+            long calls,
+            long errors,
+            long decodeMeanNs,
+            long handlerMeanNs,
+            long handlerP50Ns,
+            long handlerP90Ns,
+            long handlerP99Ns,
+            long handlerMaxNs,
+            long encodeMeanNs
+    ) {
+        public static final ManagementSchema<MethodStatistics> SCHEMA = ManagementSchema
+                .<MethodStatistics>builder(ServerManagementExtender.MOD_ID, "method_metrics")
+                .property("method", ManagementSchema.STRING, MethodStatistics::method)
+                .property("calls", ManagementSchema.LONG, MethodStatistics::calls)
+                .property("errors", ManagementSchema.LONG, MethodStatistics::errors)
+                .property("decode_mean_ns", ManagementSchema.LONG, MethodStatistics::decodeMeanNs)
+                .property("handler_mean_ns", ManagementSchema.LONG, MethodStatistics::handlerMeanNs)
+                .property("handler_p50_ns", ManagementSchema.LONG, MethodStatistics::handlerP50Ns)
+                .property("handler_p90_ns", ManagementSchema.LONG, MethodStatistics::handlerP90Ns)
+                .property("handler_p99_ns", ManagementSchema.LONG, MethodStatistics::handlerP99Ns)
+                .property("handler_max_ns", ManagementSchema.LONG, MethodStatistics::handlerMaxNs)
+                .property("encode_mean_ns", ManagementSchema.LONG, MethodStatistics::encodeMeanNs)
+                .build(MethodStatistics.class);
+
+        static MethodStatistics of(MethodMetrics.Snapshot snapshot) {
+            return new MethodStatistics(
+                    snapshot.method().toString(),
+                    snapshot.calls(),
+                    snapshot.errors(),
+                    snapshot.decode().mean(),
+                    snapshot.handler().mean(),
+                    snapshot.handler().p50(),
+                    snapshot.handler().p90(),
+                    snapshot.handler().p99(),
+                    snapshot.handler().max(),
+                    snapshot.encode().mean()
+            );
+        }
+    }
+
+    /**
+     * The statistics of a notification.
+     * @param method The identifier of the notification.
+     * @param sent The amount of notifications handed to the connections while at least one connection received the notification.
+     *             Coalesced, rate limited, dropped and unchanged delta notifications aren't counted.
+     * @param queueDepth The amount of notifications waiting in the asynchronous send queue.
+     * @param queueDrops The amount of notifications dropped because the asynchronous send queue was full.
+     */
+    public record NotificationStatistics(
+            String method,
+            long sent,
+            int queueDepth,
+            long queueDrops
+    ) {
+        public static final ManagementSchema<NotificationStatistics> SCHEMA = ManagementSchema
+                .<NotificationStatistics>builder(ServerManagementExtender.MOD_ID, "notification_metrics")
+                .property("method", ManagementSchema.STRING, NotificationStatistics::method)
+                .property("sent", ManagementSchema.LONG, NotificationStatistics::sent)
+                .property("queue_depth", ManagementSchema.INTEGER, NotificationStatistics::queueDepth)
+                .property("queue_drops", ManagementSchema.LONG, NotificationStatistics::queueDrops)
+                .build(NotificationStatistics.class);
+
+        static NotificationStatistics of(NotificationMethodMetrics.Snapshot snapshot) {
+            return new NotificationStatistics(snapshot.method().toString(), snapshot.sent(), snapshot.queueDepth(), snapshot.queueDrops());
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package dev.treset.servermanagementextender.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Java Flight Recorder event of a notification sent using a notification handler. Disabled by default.
+ */
+@Name("dev.treset.servermanagementextender.Notification")
+@Label("Management Notification")
+@Description("A call sending a notification, including encoding and writing it if it is sent synchronously")
+@Category({"Minecraft", "Server Management"})
+@Enabled(false)
+@StackTrace(false)
+public final class NotificationEvent extends Event {
+    @Label("Method")
+    public String method;
+
+    @Label("Open Connections")
+    public int connections;
+}
@@ -0,0 +1,61 @@
+package dev.treset.servermanagementextender.metrics;
+
+import dev.treset.servermanagementextender.notification.NotificationQueue;
+import net.minecraft.util.Identifier;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free send statistics of a single notification.
+ */
+public final class NotificationMethodMetrics {
+    private final Identifier method;
+    private final LongAdder sent = new LongAdder();
+    private volatile NotificationQueue<?> queue;
+
+    NotificationMethodMetrics(Identifier method) {
+        this.method = method;
+    }
+
+    public Identifier getMethod() {
+        return method;
+    }
+
+    /**
+     * Records a notification handed to the connections, after it passed coalescing, rate limiting, the send queue and delta encoding.
+     */
+    public void recordSent() {
+        sent.increment();
+    }
+
+    /**
+     * Sets the asynchronous send queue of the notification, whose depth and drops are included in snapshots.
+     * @param queue The send queue.
+     */
+    public void setQueue(NotificationQueue<?> queue) {
+        this.queue = queue;
+    }
+
+    /**
+     * @return A snapshot of the statistics of this notification.
+     */
+    public Snapshot snapshot() {
+        NotificationQueue<?> current = queue;
+        return new Snapshot(method, sent.sum(), current == null ? 0 : current.depth(), current == null ? 0 : current.getDroppedCount());
+    }
+
+    /**
+     * A snapshot of the send statistics of a notification.
+     * @param method The identifier of the notification.
+     * @param sent The amount of notifications handed to the connections while at least one connection received the notification.
+     *             Notifications replaced by coalescing, suppressed by rate limiting, dropped by the send queue or skipped by delta encoding aren't counted.
+     * @param queueDepth The amount of notifications waiting in the asynchronous send queue. 0 if the notification is sent synchronously.
+     * @param queueDrops The amount of notifications dropped because the asynchronous send queue was full.
+     */
+    public record Snapshot(
+            Identifier method,
+            long sent,
+            int queueDepth,
+            long queueDrops
+    ) {}
+}
@@ -0,0 +1,39 @@
+package dev.treset.servermanagementextender.metrics;
+
+import net.minecraft.util.Identifier;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The send statistics of all notifications sent using a notification handler.
+ */
+public final class NotificationMetrics {
+    private static final Map<Identifier, NotificationMethodMetrics> METHODS = new ConcurrentHashMap<>();
+
+    private NotificationMetrics() {}
+
+    /**
+     * @param method The identifier of the notification.
+     * @return The statistics recorder of the notification. Created if it doesn't exist yet.
+     */
+    public static NotificationMethodMetrics get(Identifier method) {
+        return METHODS.computeIfAbsent(method, NotificationMethodMetrics::new);
+    }
+
+    /**
+     * @return The statistics recorders of all notifications.
+     */
+    public static Collection<NotificationMethodMetrics> all() {
+        return METHODS.values();
+    }
+
+    /**
+     * @return Snapshots of the statistics of all notifications.
+     */
+    public static List<NotificationMethodMetrics.Snapshot> snapshot() {
+        return METHODS.values().stream().map(NotificationMethodMetrics::snapshot).toList();
+    }
+}
@@ -0,0 +1,35 @@
+package dev.treset.servermanagementextender.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Java Flight Recorder event of a request handled by the library. Disabled by default.
+ */
+@Name("dev.treset.servermanagementextender.Request")
+@Label("Management Request")
+@Description("A request to a method handled by Server Management Extender, from receiving it until the response is written")
+@Category({"Minecraft", "Server Management"})
+@Enabled(false)
+@StackTrace(false)
+public final class RequestEvent extends Event {
+    @Label("Method")
+    public String method;
+
+    @Label("Connection")
+    public String connection;
+
+    @Label("Response Size")
+    @DataAmount
+    public long responseSize;
+
+    @Label("Error Code")
+    @Description("The JSON-RPC error code or 0 if the request succeeded")
+    public int errorCode;
+}
@@ -0,0 +1,39 @@
+package dev.treset.servermanagementextender.metrics;
+
+import net.minecraft.util.Identifier;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The call statistics of all request methods handled by the library.
+ */
+public final class RequestMetrics {
+    private static final Map<Identifier, MethodMetrics> METHODS = new ConcurrentHashMap<>();
+
+    private RequestMetrics() {}
+
+    /**
+     * @param method The identifier of the method.
+     * @return The statistics recorder of the method. Created if it doesn't exist yet.
+     */
+    public static MethodMetrics get(Identifier method) {
+        return METHODS.computeIfAbsent(method, MethodMetrics::new);
+    }
+
+    /**
+     * @return The statistics recorders of all methods.
+     */
+    public static Collection<MethodMetrics> all() {
+        return METHODS.values();
+    }
+
+    /**
+     * @return Snapshots of the statistics of all methods.
+     */
+    public static List<MethodMetrics.Snapshot> snapshot() {
+        return METHODS.values().stream().map(MethodMetrics::snapshot).toList();
+    }
+}
@@ -0,0 +1,63 @@
+package dev.treset.servermanagementextender.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts the messages and bytes the library writes to management connections.
+ * <p>
+ * Only messages written by the library are counted. Responses of vanilla methods and notifications encoded by the connection itself are not.
+ */
+public final class TransportMetrics {
+    private static final LongAdder NOTIFICATIONS = new LongAdder();
+    private static final LongAdder NOTIFICATION_BYTES = new LongAdder();
+    private static final LongAdder RESPONSES = new LongAdder();
+    private static final LongAdder RESPONSE_BYTES = new LongAdder();
+
+    private TransportMetrics() {}
+
+    /**
+     * Records a notification frame written to a connection.
+     * @param bytes The size of the frame in bytes.
+     */
+    public static void recordNotification(int bytes) {
+        NOTIFICATIONS.increment();
+        NOTIFICATION_BYTES.add(bytes);
+    }
+
+    /**
+     * Records a response written to a connection.
+     * @param bytes The size of the response in bytes.
+     */
+    public static void recordResponse(int bytes) {
+        RESPONSES.increment();
+        RESPONSE_BYTES.add(bytes);
+    }
+
+    /**
+     * @return The amount of notification frames written. A batch frame counts once.
+     */
+    public static long getNotificationCount() {
+        return NOTIFICATIONS.sum();
+    }
+
+    /**
+     * @return The size of all notification frames written in bytes.
+     */
+    public static long getNotificationBytes() {
+        return NOTIFICATION_BYTES.sum();
+    }
+
+    /**
+     * @return The amount of responses written.
+     */
+    public static long getResponseCount() {
+        return RESPONSES.sum();
+    }
+
+    /**
+     * @return The size of all responses written in bytes.
+     */
+    public static long getResponseBytes() {
+        return RESPONSE_BYTES.sum();
+    }
+}
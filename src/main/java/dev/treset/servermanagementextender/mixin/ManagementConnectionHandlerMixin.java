@@ -0,0 +1,94 @@
+package dev.treset.servermanagementextender.mixin;
+
+import dev.treset.servermanagementextender.accessors.ManagementConnectionHandlerAccessor;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import dev.treset.servermanagementextender.connection.ConnectionState;
+import dev.treset.servermanagementextender.connection.ManagementConnections;
+import dev.treset.servermanagementextender.request.RequestDispatcher;
+import dev.treset.servermanagementextender.request.StreamingRequestHandler;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import net.minecraft.server.dedicated.management.dispatch.ManagementHandlerDispatcher;
+import net.minecraft.server.dedicated.management.network.ManagementConnectionHandler;
+import net.minecraft.server.dedicated.management.network.ManagementConnectionId;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.Shadow;
+import org.spongepowered.asm.mixin.Unique;
+import org.spongepowered.asm.mixin.gen.Accessor;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+@Mixin(ManagementConnectionHandler.class)
+public abstract class ManagementConnectionHandlerMixin implements ManagementConnectionHandlerAccessor {
+    @Unique
+    private boolean msme$forwarding;
+
+    @Shadow
+    protected abstract void channelRead0(ChannelHandlerContext context, JsonElement message);
+
+    @Accessor("channel")
+    public abstract Channel msme$getChannel();
+
+    @Accessor("connectionId")
+    public abstract ManagementConnectionId msme$getConnectionId();
+
+    @Accessor("dispatcher")
+    public abstract ManagementHandlerDispatcher msme$getDispatcher();
+
+    @Override
+    public Channel getChannel() {
+        return msme$getChannel();
+    }
+
+    @Override
+    public ManagementConnectionId getConnectionId() {
+        return msme$getConnectionId();
+    }
+
+    @Override
+    public ManagementHandlerDispatcher getDispatcher() {
+        return msme$getDispatcher();
+    }
+
+    @Inject(method = "channelActive", at = @At("TAIL"))
+    private void onChannelActive(ChannelHandlerContext context, CallbackInfo info) {
+        ManagementConnections.onConnected((ManagementConnectionHandler)(Object)this);
+        ConnectionState state = ManagementConnections.get((ManagementConnectionHandler)(Object)this);
+        if(state != null && state.getOutbound() != null) {
+            state.getOutbound().watchWritability(context);
+        }
+        StreamingRequestHandler.install(context, (ManagementConnectionHandler)(Object)this);
+    }
+
+    @Inject(method = "channelInactive", at = @At("TAIL"))
+    private void onChannelInactive(ChannelHandlerContext context, CallbackInfo info) {
+        ManagementConnections.onDisconnected((ManagementConnectionHandler)(Object)this);
+    }
+
+    @Inject(method = "channelRead0(Lio/netty/channel/ChannelHandlerContext;Lcom/google/gson/JsonElement;)V", at = @At("HEAD"), cancellable = true)
+    private void onChannelRead(ChannelHandlerContext context, JsonElement message, CallbackInfo info) {
+        if(msme$forwarding) {
+            return;
+        }
+        if(message instanceof JsonArray batch) {
+            JsonArray remaining = RequestDispatcher.dispatchBatch((ManagementConnectionHandler)(Object)this, batch);
+            if(remaining == batch) {
+                return;
+            }
+            info.cancel();
+            if(remaining != null) {
+                // Only the requests for vanilla methods are left to the vanilla processing
+                msme$forwarding = true;
+                try {
+                    channelRead0(context, remaining);
+                } finally {
+                    msme$forwarding = false;
+                }
+            }
+        } else if(RequestDispatcher.dispatch((ManagementConnectionHandler)(Object)this, message)) {
+            info.cancel();
+        }
+    }
+}
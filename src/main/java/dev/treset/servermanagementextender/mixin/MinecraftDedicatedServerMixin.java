@@ -7,8 +7,11 @@ import org.spongepowered.asm.mixin.Mixin;
 import org.spongepowered.asm.mixin.gen.Accessor;
 import org.spongepowered.asm.mixin.injection.At;
 import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
 import org.spongepowered.asm.mixin.injection.callback.CallbackInfoReturnable;
 
+import java.util.function.BooleanSupplier;
+
 @Mixin(MinecraftDedicatedServer.class)
 public abstract class MinecraftDedicatedServerMixin {
     @Accessor("managementServer")
@@ -17,6 +20,10 @@ public abstract class MinecraftDedicatedServerMixin {
     @Inject(method = "setupServer()Z", at = @At("RETURN"))
     private void setupServer(CallbackInfoReturnable<Boolean> info) {
         ServerManagementExtender.init(getManagementServer());
-        ServerManagementExtender.notifyAll(null, null);
+    }
+
+    @Inject(method = "tickWorlds(Ljava/util/function/BooleanSupplier;)V", at = @At("TAIL"))
+    private void tickWorlds(BooleanSupplier shouldKeepTicking, CallbackInfo info) {
+        ServerManagementExtender.tick();
     }
 }
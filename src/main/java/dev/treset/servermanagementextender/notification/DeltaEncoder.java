@@ -0,0 +1,234 @@
+package dev.treset.servermanagementextender.notification;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.mojang.serialization.Codec;
+import com.mojang.serialization.JsonOps;
+import dev.treset.servermanagementextender.ServerManagementExtender;
+import dev.treset.servermanagementextender.connection.ConnectionState;
+import dev.treset.servermanagementextender.metrics.CodecEvent;
+import net.minecraft.util.Identifier;
+
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.function.Function;
+
+/**
+ * Encodes notifications as the difference to the last notification sent for the same key.
+ * <p>
+ * Every {@code keyframeInterval}-th notification of a key is a keyframe containing all properties.
+ * All other notifications only contain the key properties and the properties that changed.
+ * Properties that were removed are sent as {@code null}, so clients can merge every notification into their last known state.
+ * Notifications where no property changed are not sent at all.
+ * <p>
+ * Differences are encoded once and shared between all connections.
+ * Each connection keeps track of the keys it has received a keyframe for since it last received every notification of this encoder.
+ * A connection that connected or subscribed late, or that had a notification dropped by its outbound queue, receives a keyframe instead of the difference
+ * for every key until it is in sync again.
+ * At most {@code maxKeys} keys are remembered, the least recently sent key is forgotten first.
+ * @param <T> The type of object the notification sends.
+ */
+public final class DeltaEncoder<T> {
+    public static final int DEFAULT_MAX_KEYS = 4096;
+
+    private static final Object NULL_KEY = new Object();
+
+    private final Identifier method;
+    private final Codec<T> codec;
+    private final List<String> properties;
+    private final Set<String> keyProperties;
+    private final Function<T, ?> keyExtractor;
+    private final int keyframeInterval;
+    private final int maxKeys;
+    private final Map<Object, KeyState> states;
+    // Connections are only referenced weakly, closed connections are removed once collected
+    private final Map<ConnectionState, Baseline> baselines = new WeakHashMap<>();
+    private long sequence;
+
+    /**
+     * @param method The identifier of the notification method.
+     * @param codec The codec of the notification content.
+     * @param properties The names of all properties of the notification content, in order.
+     * @param keyProperties The names of the properties that are always sent.
+     * @param keyExtractor A function getting the key from the data object. Differences are computed between notifications with equal keys.
+     * @param keyframeInterval Every how many notifications of a key a keyframe is sent.
+     * @param maxKeys The maximum amount of keys whose last notification is remembered.
+     */
+    public DeltaEncoder(Identifier method, Codec<T> codec, List<String> properties, Set<String> keyProperties, Function<T, ?> keyExtractor, int keyframeInterval, int maxKeys) {
+        if(maxKeys <= 0) {
+            throw new IllegalArgumentException("Max keys must be positive: " + maxKeys);
+        }
+        this.method = method;
+        this.codec = codec;
+        this.properties = properties;
+        this.keyProperties = keyProperties;
+        this.keyExtractor = keyExtractor;
+        this.keyframeInterval = keyframeInterval;
+        this.maxKeys = maxKeys;
+        this.states = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Object, KeyState> eldest) {
+                return size() > DeltaEncoder.this.maxKeys;
+            }
+        };
+    }
+
+    /**
+     * Encodes a notification as a keyframe or the difference to the last notification of its key.
+     * Connections that are not in sync receive a keyframe instead when the frame is written to them.
+     * @param payload The notification content.
+     * @return The encoded frame or {@code null} if nothing changed or the payload could not be encoded.
+     */
+    public NotificationFrame encode(T payload) {
+        CodecEvent event = new CodecEvent();
+        event.begin();
+        JsonElement encoded = codec.encodeStart(JsonOps.INSTANCE, payload)
+                .resultOrPartial(error -> ServerManagementExtender.LOGGER.warn("Failed to encode notification {}: {}", method, error))
+                .orElse(null);
+        if(event.shouldCommit()) {
+            event.method = method.toString();
+            event.operation = CodecEvent.ENCODE;
+            event.size = -1;
+            event.commit();
+        }
+        if(!(encoded instanceof JsonObject current)) {
+            return null;
+        }
+
+        Object key = toKey(keyExtractor.apply(payload));
+        synchronized(this) {
+            KeyState state = states.computeIfAbsent(key, k -> new KeyState());
+            JsonObject last = state.last;
+            boolean keyframe = last == null || state.sent % keyframeInterval == 0;
+            boolean changed = false;
+
+            JsonObject delta = new JsonObject();
+            for(String property : properties) {
+                JsonElement value = current.get(property);
+                boolean propertyChanged = last == null || !Objects.equals(value, last.get(property));
+                if(keyframe || propertyChanged || keyProperties.contains(property)) {
+                    delta.add(property, value == null ? JsonNull.INSTANCE : value);
+                }
+                if(propertyChanged && !keyProperties.contains(property)) {
+                    changed = true;
+                }
+            }
+
+            state.last = current;
+            if(!keyframe && !changed) {
+                return null;
+            }
+            state.sent++;
+            return NotificationFrame.encode(method, delta).withDelta(new Delta(this, key, ++sequence, keyframe, current));
+        }
+    }
+
+    /**
+     * Forgets the last notification of a key. The next notification of the key is a keyframe.
+     * @param key The key to forget.
+     */
+    public synchronized void forget(Object key) {
+        states.remove(toKey(key));
+    }
+
+    /**
+     * Decides whether a connection can receive a difference or needs a keyframe.
+     * @return {@code true} if the connection needs a keyframe.
+     */
+    private synchronized boolean needsKeyframe(Delta delta, ConnectionState connection) {
+        if(connection == null) {
+            // Untracked connections can't be kept in sync
+            return !delta.keyframe;
+        }
+        Baseline baseline = baselines.get(connection);
+        if(baseline == null) {
+            baseline = new Baseline();
+            baselines.put(connection, baseline);
+        } else if(baseline.sequence != delta.sequence - 1 || baseline.keys.size() >= maxKeys) {
+            // The connection missed a notification of this encoder, every key needs a keyframe again
+            baseline.keys.clear();
+        }
+        baseline.sequence = delta.sequence;
+        return baseline.keys.add(delta.key) && !delta.keyframe;
+    }
+
+    private synchronized void resync(ConnectionState connection) {
+        baselines.remove(connection);
+    }
+
+    private NotificationFrame keyframe(JsonObject current) {
+        JsonObject keyframe = new JsonObject();
+        for(String property : properties) {
+            JsonElement value = current.get(property);
+            keyframe.add(property, value == null ? JsonNull.INSTANCE : value);
+        }
+        return NotificationFrame.encode(method, keyframe);
+    }
+
+    private static Object toKey(Object key) {
+        return key == null ? NULL_KEY : key;
+    }
+
+    /**
+     * A notification encoded by a delta encoder.
+     */
+    static final class Delta {
+        private final DeltaEncoder<?> encoder;
+        private final Object key;
+        private final long sequence;
+        private final boolean keyframe;
+        private final JsonObject current;
+        private NotificationFrame keyframeFrame;
+
+        private Delta(DeltaEncoder<?> encoder, Object key, long sequence, boolean keyframe, JsonObject current) {
+            this.encoder = encoder;
+            this.key = key;
+            this.sequence = sequence;
+            this.keyframe = keyframe;
+            this.current = current;
+        }
+
+        /**
+         * @param frame The encoded difference.
+         * @param connection The connection the frame is written to. May be {@code null} for connections that aren't tracked.
+         * @return The frame to write to the connection, either the difference or a keyframe with the same priority.
+         */
+        NotificationFrame resolve(NotificationFrame frame, ConnectionState connection) {
+            if(!encoder.needsKeyframe(this, connection)) {
+                return frame;
+            }
+            NotificationFrame encoded;
+            synchronized(this) {
+                if(keyframeFrame == null) {
+                    keyframeFrame = encoder.keyframe(current).withDropTracking(this);
+                }
+                encoded = keyframeFrame;
+            }
+            return encoded.withPriority(frame.getPriority());
+        }
+
+        /**
+         * Called when a frame containing this notification was dropped by the outbound queue of a connection.
+         * @param connection The connection that didn't receive the notification.
+         */
+        void dropped(ConnectionState connection) {
+            encoder.resync(connection);
+        }
+    }
+
+    private static final class KeyState {
+        private JsonObject last;
+        private long sent;
+    }
+
+    private static final class Baseline {
+        private final Set<Object> keys = new HashSet<>();
+        private long sequence;
+    }
+}
@@ -0,0 +1,184 @@
+package dev.treset.servermanagementextender.notification;
+
+import com.mojang.serialization.Codec;
+import dev.treset.servermanagementextender.ServerManagementExtender;
+import dev.treset.servermanagementextender.connection.ConnectionState;
+import dev.treset.servermanagementextender.connection.ManagementConnections;
+import net.minecraft.registry.entry.RegistryEntry;
+import net.minecraft.server.dedicated.management.OutgoingRpcMethod;
+import net.minecraft.server.dedicated.management.network.ManagementConnectionHandler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Accumulates notifications sent during a server tick and sends them at the end of the tick as JSON-RPC batch frames.
+ * <p>
+ * Each notification is encoded once and the resulting batch frames are shared between all connections.
+ * Batches are split when they would exceed the configured maximum amount of notifications or bytes.
+ * A batch is queued with the highest priority of the notifications it contains.
+ * Connections that need a keyframe instead of a delta notification receive their own batches.
+ */
+public final class NotificationBatcher {
+    private static final Queue<PendingNotification<?>> PENDING = new ConcurrentLinkedQueue<>();
+
+    private static volatile int maxBatchSize = 256;
+    private static volatile int maxBatchBytes = 1 << 20;
+
+    private NotificationBatcher() {}
+
+    /**
+     * Sets the maximum amount of notifications in a single batch frame. Default is 256.
+     * @param size The maximum amount of notifications.
+     */
+    public static void setMaxBatchSize(int size) {
+        if(size <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive: " + size);
+        }
+        maxBatchSize = size;
+    }
+
+    /**
+     * Sets the maximum size of a single batch frame in bytes. Default is 1 MiB.
+     * A single notification larger than this is still sent in its own batch.
+     * @param bytes The maximum size in bytes.
+     */
+    public static void setMaxBatchBytes(int bytes) {
+        if(bytes <= 0) {
+            throw new IllegalArgumentException("Batch bytes must be positive: " + bytes);
+        }
+        maxBatchBytes = bytes;
+    }
+
+    /**
+     * Adds a notification to the batch of the current tick.
+     * @param method The notification method.
+     * @param codec The codec of the notification content.
+     * @param payload The notification content.
+     * @param topic The subscription topic of the notification. If {@code null}, the notification is sent to all connections.
+     * @param <T> The type of object the notification sends.
+     */
+    public static <T> void add(RegistryEntry.Reference<? extends OutgoingRpcMethod<T, ?>> method, Codec<T> codec, T payload, NotificationTopic topic) {
+        PENDING.add(new PendingNotification<>(method, codec, null, payload, topic));
+    }
+
+    /**
+     * Adds an already encoded notification to the batch of the current tick.
+     * @param method The notification method.
+     * @param frame The encoded notification.
+     * @param payload The notification content. Only sent to connections that can't accept encoded frames.
+     * @param topic The subscription topic of the notification. If {@code null}, the notification is sent to all connections.
+     * @param <T> The type of object the notification sends.
+     */
+    public static <T> void add(RegistryEntry.Reference<? extends OutgoingRpcMethod<T, ?>> method, NotificationFrame frame, T payload, NotificationTopic topic) {
+        PENDING.add(new PendingNotification<>(method, null, frame, payload, topic));
+    }
+
+    /**
+     * Encodes all notifications added since the last flush and writes them to all connections.
+     */
+    public static void flush() {
+        if(PENDING.isEmpty()) {
+            return;
+        }
+
+        List<PendingNotification<?>> encoded = new ArrayList<>();
+        List<PendingNotification<?>> failed = new ArrayList<>();
+        List<NotificationFrame> frames = new ArrayList<>();
+        PendingNotification<?> pending;
+        while((pending = PENDING.poll()) != null) {
+            NotificationFrame frame = pending.encode();
+            if(frame != null) {
+                encoded.add(pending);
+                frames.add(frame);
+            } else {
+                failed.add(pending);
+            }
+        }
+
+        // Batches for connections receiving all notifications are built once and shared
+        List<NotificationFrame> sharedBatches = split(frames);
+        ServerManagementExtender.forEachConnection(connection -> {
+            ConnectionState state = ManagementConnections.get(connection);
+            // Delta notifications may be replaced by keyframes for this connection
+            boolean shared = true;
+            List<NotificationFrame> subscribed = new ArrayList<>(frames.size());
+            for(int i = 0; i < encoded.size(); i++) {
+                if(encoded.get(i).isSubscribed(state)) {
+                    NotificationFrame frame = frames.get(i).forConnection(state);
+                    shared &= frame == frames.get(i);
+                    subscribed.add(frame);
+                } else {
+                    shared = false;
+                }
+            }
+            List<NotificationFrame> batches = shared ? sharedBatches : split(subscribed);
+
+            if(!batches.isEmpty()) {
+                if(batches.get(0).writeTo(connection)) {
+                    for(int i = 1; i < batches.size(); i++) {
+                        batches.get(i).writeTo(connection);
+                    }
+                } else {
+                    // Connection doesn't accept frames, fall back to sending every notification individually
+                    for(PendingNotification<?> notification : encoded) {
+                        if(notification.isSubscribed(state)) {
+                            notification.sendTo(connection);
+                        }
+                    }
+                }
+            }
+            for(PendingNotification<?> notification : failed) {
+                if(notification.isSubscribed(state)) {
+                    notification.sendTo(connection);
+                }
+            }
+        });
+    }
+
+    private static List<NotificationFrame> split(List<NotificationFrame> frames) {
+        int maxSize = maxBatchSize;
+        int maxBytes = maxBatchBytes;
+
+        List<NotificationFrame> batches = new ArrayList<>();
+        List<NotificationFrame> current = new ArrayList<>();
+        int currentBytes = 2;
+        for(NotificationFrame frame : frames) {
+            int frameBytes = frame.size() + 1;
+            if(!current.isEmpty() && (current.size() >= maxSize || currentBytes + frameBytes > maxBytes)) {
+                batches.add(NotificationFrame.batch(current));
+                current = new ArrayList<>();
+                currentBytes = 2;
+            }
+            current.add(frame);
+            currentBytes += frameBytes;
+        }
+        if(!current.isEmpty()) {
+            batches.add(NotificationFrame.batch(current));
+        }
+        return batches;
+    }
+
+    private record PendingNotification<T>(
+            RegistryEntry.Reference<? extends OutgoingRpcMethod<T, ?>> method,
+            Codec<T> codec,
+            NotificationFrame frame,
+            T payload,
+            NotificationTopic topic
+    ) {
+        NotificationFrame encode() {
+            NotificationFrame encoded = frame != null || codec == null ? frame : NotificationFrame.encode(method.registryKey().getValue(), codec, payload);
+            return topic == null ? encoded : topic.prioritize(encoded);
+        }
+
+        boolean isSubscribed(ConnectionState state) {
+            return topic == null || topic.isSubscribed(state);
+        }
+
+        void sendTo(ManagementConnectionHandler connection) {
+            connection.sendNotification(method, payload);
+        }
+    }
+}
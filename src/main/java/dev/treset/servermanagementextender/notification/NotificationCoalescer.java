@@ -0,0 +1,62 @@
+package dev.treset.servermanagementextender.notification;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Holds back notification payloads until the next flush and only sends the latest payload for each key.
+ * <p>
+ * Pending payloads are stored in a {@link ConcurrentHashMap}, which locks per bin, so concurrent senders of different keys don't contend.
+ * @param <T> The type of object the notification sends.
+ */
+public final class NotificationCoalescer<T> {
+    // ConcurrentHashMap doesn't allow null keys
+    private static final Object NULL_KEY = new Object();
+
+    private final Map<Object, T> pending = new ConcurrentHashMap<>();
+    private final Function<T, ?> keyExtractor;
+    private final Consumer<T> sink;
+
+    /**
+     * @param keyExtractor A function getting the key of a payload. Payloads with equal keys replace each other. May return {@code null}, which is a key like any other.
+     * @param sink The function sending a payload when flushed.
+     */
+    public NotificationCoalescer(Function<T, ?> keyExtractor, Consumer<T> sink) {
+        this.keyExtractor = keyExtractor;
+        this.sink = sink;
+    }
+
+    /**
+     * Stores a payload, replacing any pending payload with the same key.
+     * @param payload The payload to send on the next flush. Must not be {@code null}.
+     */
+    public void put(T payload) {
+        pending.put(Objects.requireNonNullElse(keyExtractor.apply(payload), NULL_KEY), payload);
+    }
+
+    /**
+     * Sends all pending payloads.
+     */
+    public void flush() {
+        if(pending.isEmpty()) {
+            return;
+        }
+        for(Map.Entry<Object, T> entry : pending.entrySet()) {
+            T payload = entry.getValue();
+            // Only send if the payload wasn't replaced in the meantime, the newer one is sent on the next flush
+            if(pending.remove(entry.getKey(), payload)) {
+                sink.accept(payload);
+            }
+        }
+    }
+
+    /**
+     * @return The amount of keys with a pending payload.
+     */
+    public int size() {
+        return pending.size();
+    }
+}
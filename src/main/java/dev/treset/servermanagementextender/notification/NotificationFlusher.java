@@ -0,0 +1,36 @@
+package dev.treset.servermanagementextender.notification;
+
+import dev.treset.servermanagementextender.ServerManagementExtender;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Collects tasks that send notifications held back during a server tick. All tasks are run at the end of every tick.
+ */
+public final class NotificationFlusher {
+    private static final List<Runnable> TASKS = new CopyOnWriteArrayList<>();
+
+    private NotificationFlusher() {}
+
+    /**
+     * Registers a task to be run at the end of every server tick.
+     * @param task The task sending held back notifications.
+     */
+    public static void register(Runnable task) {
+        TASKS.add(task);
+    }
+
+    /**
+     * Runs all registered tasks. Called at the end of every server tick.
+     */
+    public static void flush() {
+        for(Runnable task : TASKS) {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                ServerManagementExtender.LOGGER.error("Failed to flush notifications", e);
+            }
+        }
+    }
+}
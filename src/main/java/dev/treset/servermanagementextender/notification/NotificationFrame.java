@@ -0,0 +1,219 @@
+package dev.treset.servermanagementextender.notification;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.mojang.serialization.Codec;
+import com.mojang.serialization.JsonOps;
+import dev.treset.servermanagementextender.ServerManagementExtender;
+import dev.treset.servermanagementextender.codec.JsonStreamEncoders;
+import dev.treset.servermanagementextender.accessors.ManagementConnectionHandlerAccessor;
+import dev.treset.servermanagementextender.connection.ConnectionState;
+import dev.treset.servermanagementextender.connection.ManagementConnections;
+import dev.treset.servermanagementextender.metrics.CodecEvent;
+import dev.treset.servermanagementextender.metrics.TransportMetrics;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import net.minecraft.server.dedicated.management.network.ManagementConnectionHandler;
+import net.minecraft.util.Identifier;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * A JSON-RPC notification that has been encoded once and can be written to any number of connections.
+ * <p>
+ * The encoded content is stored in an immutable buffer that is shared between all writes, so the payload codec and JSON serialization only run once per notification.
+ * Multiple frames can be combined into a single JSON-RPC batch frame.
+ * Each frame has a {@link NotificationPriority} deciding which outbound lane it is queued in if a connection can't keep up.
+ * Payloads are written directly into the frame buffer using their {@link JsonStreamEncoders stream encoder} without building a {@code JsonElement} tree.
+ * Encoding a payload is recorded as a {@link CodecEvent} if the event is enabled in a flight recording.
+ * <p>
+ * Frames encoded by a {@link DeltaEncoder} are replaced by a keyframe for connections that are not in sync with the encoder,
+ * and put the connection out of sync if they are dropped by its outbound queue.
+ */
+public final class NotificationFrame {
+    private final Identifier method;
+    private final ByteBuf content;
+    private final NotificationPriority priority;
+    // The delta notification to resolve per connection, null if the frame is written as is
+    private final DeltaEncoder.Delta delta;
+    // The delta notifications contained in this frame
+    private final List<DeltaEncoder.Delta> deltas;
+
+    private NotificationFrame(Identifier method, ByteBuf content, NotificationPriority priority) {
+        this(method, content, priority, null, List.of());
+    }
+
+    private NotificationFrame(Identifier method, ByteBuf content, NotificationPriority priority, DeltaEncoder.Delta delta, List<DeltaEncoder.Delta> deltas) {
+        this.method = method;
+        this.content = content;
+        this.priority = priority;
+        this.delta = delta;
+        this.deltas = deltas;
+    }
+
+    /**
+     * Encodes a notification into a shareable frame.
+     * @param method The identifier of the notification method.
+     * @param codec The codec of the notification content.
+     * @param payload The notification content.
+     * @return The encoded frame or {@code null} if the payload could not be encoded.
+     * @param <T> The type of object the notification sends.
+     */
+    public static <T> NotificationFrame encode(Identifier method, Codec<T> codec, T payload) {
+        CodecEvent event = new CodecEvent();
+        event.begin();
+        NotificationFrame frame;
+        try {
+            ByteBuf content = JsonStreamEncoders.encode(codec, payload, "{\"jsonrpc\":\"2.0\",\"method\":\"" + method + "\",\"params\":[", "]}");
+            frame = new NotificationFrame(method, Unpooled.unreleasableBuffer(content.asReadOnly()), NotificationPriority.NORMAL);
+        } catch (RuntimeException e) {
+            // Encode through the codec to report the error the same way as before
+            Optional<JsonElement> encoded = codec.encodeStart(JsonOps.INSTANCE, payload)
+                    .resultOrPartial(error -> ServerManagementExtender.LOGGER.warn("Failed to encode notification {}: {}", method, error));
+            frame = encoded.map(json -> encode(method, json)).orElse(null);
+        }
+        if(event.shouldCommit()) {
+            event.method = method.toString();
+            event.operation = CodecEvent.ENCODE;
+            event.size = frame == null ? -1 : frame.size();
+            event.commit();
+        }
+        return frame;
+    }
+
+    /**
+     * Creates a shareable frame from already encoded notification content.
+     * @param method The identifier of the notification method.
+     * @param content The encoded notification content.
+     * @return The encoded frame.
+     */
+    public static NotificationFrame encode(Identifier method, JsonElement content) {
+        JsonArray params = new JsonArray(1);
+        params.add(content);
+
+        JsonObject json = new JsonObject();
+        json.addProperty("jsonrpc", "2.0");
+        json.addProperty("method", method.toString());
+        json.add("params", params);
+
+        byte[] bytes = json.toString().getBytes(StandardCharsets.UTF_8);
+        return new NotificationFrame(method, Unpooled.unreleasableBuffer(Unpooled.wrappedBuffer(bytes).asReadOnly()), NotificationPriority.NORMAL);
+    }
+
+    /**
+     * Combines multiple frames into a single JSON-RPC batch frame.
+     * @param frames The frames to combine.
+     * @return A frame containing a JSON array of all frames. The method of the returned frame is {@code null}, its priority is the highest priority of all frames.
+     */
+    public static NotificationFrame batch(List<NotificationFrame> frames) {
+        int size = 1 + frames.size();
+        NotificationPriority priority = NotificationPriority.LOW;
+        List<DeltaEncoder.Delta> deltas = List.of();
+        for(NotificationFrame frame : frames) {
+            size += frame.size();
+            if(frame.priority.compareTo(priority) > 0) {
+                priority = frame.priority;
+            }
+            if(!frame.deltas.isEmpty()) {
+                if(deltas.isEmpty()) {
+                    deltas = new ArrayList<>();
+                }
+                deltas.addAll(frame.deltas);
+            }
+        }
+
+        ByteBuf content = Unpooled.buffer(size, size);
+        content.writeByte('[');
+        for(int i = 0; i < frames.size(); i++) {
+            if(i > 0) {
+                content.writeByte(',');
+            }
+            content.writeBytes(frames.get(i).content.duplicate());
+        }
+        content.writeByte(']');
+        return new NotificationFrame(null, Unpooled.unreleasableBuffer(content.asReadOnly()), priority, null, deltas);
+    }
+
+    /**
+     * @param priority The priority of the frame.
+     * @return A frame with the same content and the given priority. The content is shared, not copied.
+     */
+    public NotificationFrame withPriority(NotificationPriority priority) {
+        return priority == this.priority ? this : new NotificationFrame(method, content, priority, delta, deltas);
+    }
+
+    NotificationFrame withDelta(DeltaEncoder.Delta delta) {
+        return new NotificationFrame(method, content, priority, delta, List.of(delta));
+    }
+
+    NotificationFrame withDropTracking(DeltaEncoder.Delta delta) {
+        return new NotificationFrame(method, content, priority, null, List.of(delta));
+    }
+
+    /**
+     * @param state The state of the connection the frame is written to. May be {@code null} for connections that aren't tracked.
+     * @return The frame to write to the connection. A keyframe if this is a delta notification the connection is not in sync for, otherwise this frame.
+     */
+    public NotificationFrame forConnection(ConnectionState state) {
+        return delta == null ? this : delta.resolve(this, state);
+    }
+
+    /**
+     * Called when this frame was dropped by the outbound queue of a connection.
+     * @param state The state of the connection.
+     */
+    void dropped(ConnectionState state) {
+        for(DeltaEncoder.Delta dropped : deltas) {
+            dropped.dropped(state);
+        }
+    }
+
+    public Identifier getMethod() {
+        return method;
+    }
+
+    public NotificationPriority getPriority() {
+        return priority;
+    }
+
+    /**
+     * @return The size of the encoded frame in bytes.
+     */
+    public int size() {
+        return content.readableBytes();
+    }
+
+    /**
+     * Writes this frame to a connection without re-encoding it.
+     * The frame goes through the outbound lane of its priority, which may hold it back or drop it if the connection can't keep up.
+     * @param connection The connection to write to.
+     * @return {@code false} if the connection does not expose a channel and the frame must be sent using the per-connection path instead.
+     */
+    public boolean writeTo(ManagementConnectionHandler connection) {
+        Channel channel = ((ManagementConnectionHandlerAccessor)connection).getChannel();
+        if(channel == null) {
+            return false;
+        }
+
+        ConnectionState state = ManagementConnections.get(connection);
+        NotificationFrame frame = forConnection(state);
+        if(state != null && state.getOutbound() != null) {
+            state.getOutbound().write(frame, frame.priority);
+        } else if(channel.isActive()) {
+            frame.write(channel);
+        }
+        return true;
+    }
+
+    ChannelFuture write(Channel channel) {
+        TransportMetrics.recordNotification(size());
+        return channel.writeAndFlush(new TextWebSocketFrame(content.duplicate()));
+    }
+}
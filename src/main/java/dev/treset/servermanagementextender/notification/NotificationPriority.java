@@ -0,0 +1,26 @@
+package dev.treset.servermanagementextender.notification;
+
+/**
+ * The priority of a notification. Each priority has its own outbound lane per connection.
+ * <p>
+ * When notifications have to be queued because a connection can't keep up, the lanes are drained weighted by priority,
+ * so higher priorities are sent first without starving lower ones.
+ */
+public enum NotificationPriority {
+    LOW(1),
+    NORMAL(4),
+    HIGH(16);
+
+    private final int weight;
+
+    NotificationPriority(int weight) {
+        this.weight = weight;
+    }
+
+    /**
+     * @return How many notifications of this priority are sent for each notification of priority {@link #LOW} when queued.
+     */
+    public int getWeight() {
+        return weight;
+    }
+}
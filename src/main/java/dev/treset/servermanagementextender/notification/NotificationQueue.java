@@ -0,0 +1,161 @@
+package dev.treset.servermanagementextender.notification;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * A bounded, preallocated multi-producer single-consumer ring buffer of notification payloads.
+ * <p>
+ * Any thread may offer payloads; only the {@link NotificationSender} thread drains them, which keeps the payloads of one queue in order.
+ * If the queue is full new payloads are dropped and counted.
+ * @param <T> The type of object the notification sends.
+ */
+public final class NotificationQueue<T> {
+    private final Object[] payloads;
+    private final long[] enqueuedAt;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final Consumer<T> sink;
+
+    private final AtomicLong tail = new AtomicLong();
+    private volatile long head;
+
+    private final LongAdder drops = new LongAdder();
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder totalLatency = new LongAdder();
+    private final AtomicLong maxLatency = new AtomicLong();
+
+    /**
+     * @param capacity The maximum amount of pending payloads. Rounded up to the next power of two.
+     * @param sink The function sending a payload. Called on the sender thread.
+     */
+    public NotificationQueue(int capacity, Consumer<T> sink) {
+        if(capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        int size = Integer.highestOneBit(capacity - 1) << 1;
+        if(size <= 0) {
+            size = 1;
+        }
+        this.payloads = new Object[size];
+        this.enqueuedAt = new long[size];
+        this.sequences = new AtomicLongArray(size);
+        for(int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+        this.mask = size - 1;
+        this.sink = sink;
+    }
+
+    /**
+     * Adds a payload to the queue without blocking.
+     * @param payload The payload to send.
+     * @return {@code false} if the queue was full and the payload was dropped.
+     */
+    public boolean offer(T payload) {
+        long position;
+        int index;
+        while(true) {
+            position = tail.get();
+            index = (int)(position & mask);
+            long difference = sequences.get(index) - position;
+            if(difference == 0) {
+                if(tail.compareAndSet(position, position + 1)) {
+                    break;
+                }
+            } else if(difference < 0) {
+                drops.increment();
+                return false;
+            }
+        }
+        payloads[index] = payload;
+        enqueuedAt[index] = System.nanoTime();
+        sequences.set(index, position + 1);
+        NotificationSender.wakeUp();
+        return true;
+    }
+
+    /**
+     * Sends up to {@code max} pending payloads. Must only be called by the sender thread.
+     * @param max The maximum amount of payloads to send.
+     * @return The amount of payloads sent.
+     */
+    @SuppressWarnings("unchecked")
+    int drain(int max) {
+        long position = head;
+        int count = 0;
+        while(count < max) {
+            int index = (int)(position & mask);
+            if(sequences.get(index) != position + 1) {
+                break;
+            }
+            T payload = (T)payloads[index];
+            long start = enqueuedAt[index];
+            payloads[index] = null;
+            sequences.set(index, position + payloads.length);
+            head = ++position;
+            count++;
+
+            sink.accept(payload);
+
+            long latency = System.nanoTime() - start;
+            sent.increment();
+            totalLatency.add(latency);
+            maxLatency.accumulateAndGet(latency, Math::max);
+        }
+        return count;
+    }
+
+    boolean isEmpty() {
+        return tail.get() == head;
+    }
+
+    /**
+     * @return The amount of payloads currently waiting to be sent.
+     */
+    public int depth() {
+        return (int)Math.max(0, tail.get() - head);
+    }
+
+    /**
+     * @return The amount of payloads dropped because the queue was full.
+     */
+    public long getDroppedCount() {
+        return drops.sum();
+    }
+
+    /**
+     * @return A snapshot of the statistics of this queue.
+     */
+    public Statistics getStatistics() {
+        long sentCount = sent.sum();
+        return new Statistics(
+                depth(),
+                payloads.length,
+                drops.sum(),
+                sentCount,
+                sentCount == 0 ? 0 : totalLatency.sum() / sentCount,
+                maxLatency.get()
+        );
+    }
+
+    /**
+     * Statistics of a notification queue.
+     * @param depth The amount of payloads currently waiting to be sent.
+     * @param capacity The maximum amount of pending payloads.
+     * @param drops The amount of payloads dropped because the queue was full.
+     * @param sent The amount of payloads sent.
+     * @param averageLatencyNanos The average time between enqueueing a payload and writing it to all connections.
+     * @param maxLatencyNanos The maximum time between enqueueing a payload and writing it to all connections.
+     */
+    public record Statistics(
+            int depth,
+            int capacity,
+            long drops,
+            long sent,
+            long averageLatencyNanos,
+            long maxLatencyNanos
+    ) {}
+}
@@ -0,0 +1,69 @@
+package dev.treset.servermanagementextender.notification;
+
+import dev.treset.servermanagementextender.ServerManagementExtender;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The dedicated thread encoding and writing notifications of asynchronous notification handlers.
+ * <p>
+ * All queues are drained round-robin in small batches so a busy notification can't starve the others.
+ */
+public final class NotificationSender {
+    private static final int DRAIN_BATCH = 64;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+    private static final List<NotificationQueue<?>> QUEUES = new CopyOnWriteArrayList<>();
+    private static volatile Thread thread;
+    private static volatile boolean waiting;
+
+    private NotificationSender() {}
+
+    /**
+     * Registers a queue to be drained by the sender thread. Starts the thread if it isn't running yet.
+     * @param queue The queue to drain.
+     */
+    public static synchronized void register(NotificationQueue<?> queue) {
+        QUEUES.add(queue);
+        if(thread == null) {
+            Thread t = new Thread(NotificationSender::run, "Server Management Notification Sender");
+            t.setDaemon(true);
+            thread = t;
+            t.start();
+        }
+    }
+
+    static void wakeUp() {
+        if(waiting) {
+            Thread t = thread;
+            if(t != null) {
+                LockSupport.unpark(t);
+            }
+        }
+    }
+
+    private static void run() {
+        while(true) {
+            int sent = 0;
+            for(NotificationQueue<?> queue : QUEUES) {
+                try {
+                    sent += queue.drain(DRAIN_BATCH);
+                } catch (RuntimeException e) {
+                    ServerManagementExtender.LOGGER.error("Failed to send queued notification", e);
+                }
+            }
+            if(sent > 0) {
+                continue;
+            }
+
+            waiting = true;
+            if(QUEUES.stream().allMatch(NotificationQueue::isEmpty)) {
+                LockSupport.parkNanos(NotificationSender.class, IDLE_PARK_NANOS);
+            }
+            waiting = false;
+        }
+    }
+}
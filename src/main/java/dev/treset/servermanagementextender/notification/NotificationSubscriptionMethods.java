@@ -0,0 +1,52 @@
+package dev.treset.servermanagementextender.notification;
+
+import dev.treset.servermanagementextender.ServerManagementExtender;
+import dev.treset.servermanagementextender.connection.ConnectionState;
+import dev.treset.servermanagementextender.connection.ManagementConnections;
+import dev.treset.servermanagementextender.wrapper.ManagementSchema;
+import dev.treset.servermanagementextender.wrapper.RpcMethodBuilder;
+import dev.treset.servermanagementextender.wrapper.ServerManagementInitialized;
+import net.minecraft.server.dedicated.management.dispatch.ManagementHandlerDispatcher;
+import net.minecraft.server.dedicated.management.network.ManagementConnectionId;
+
+import java.util.List;
+
+/**
+ * Registers the RPC methods allowing clients to subscribe to and unsubscribe from notifications registered through this library.
+ */
+@ServerManagementInitialized
+public class NotificationSubscriptionMethods {
+    static {
+        RpcMethodBuilder.of(ManagementSchema.STRING.asList())
+                .responsePropertyName("subscriptions")
+                .parameter(ManagementSchema.STRING.asList())
+                .parameterName("notifications")
+                .description("Subscribe to notifications. Once a connection has subscribed or unsubscribed, it only receives the notifications it is subscribed to")
+                .identifier(ServerManagementExtender.MOD_ID, "notifications/subscribe")
+                .build(NotificationSubscriptionMethods::subscribe);
+
+        RpcMethodBuilder.of(ManagementSchema.STRING.asList())
+                .responsePropertyName("subscriptions")
+                .parameter(ManagementSchema.STRING.asList())
+                .parameterName("notifications")
+                .description("Unsubscribe from notifications. Once a connection has subscribed or unsubscribed, it only receives the notifications it is subscribed to")
+                .identifier(ServerManagementExtender.MOD_ID, "notifications/unsubscribe")
+                .build(NotificationSubscriptionMethods::unsubscribe);
+    }
+
+    private static List<String> subscribe(ManagementHandlerDispatcher dispatcher, List<String> notifications, ManagementConnectionId id) {
+        return NotificationSubscriptions.subscribe(getState(id), notifications);
+    }
+
+    private static List<String> unsubscribe(ManagementHandlerDispatcher dispatcher, List<String> notifications, ManagementConnectionId id) {
+        return NotificationSubscriptions.unsubscribe(getState(id), notifications);
+    }
+
+    private static ConnectionState getState(ManagementConnectionId id) {
+        ConnectionState state = ManagementConnections.get(id);
+        if(state == null) {
+            throw new IllegalStateException("Connection is not open: " + id);
+        }
+        return state;
+    }
+}
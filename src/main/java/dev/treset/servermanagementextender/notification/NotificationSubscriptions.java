@@ -0,0 +1,163 @@
+package dev.treset.servermanagementextender.notification;
+
+import dev.treset.servermanagementextender.connection.ConnectionState;
+import dev.treset.servermanagementextender.connection.ManagementConnections;
+import net.minecraft.util.Identifier;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Keeps track of which connections are subscribed to which notifications.
+ * <p>
+ * Connections receive all notifications until they subscribe or unsubscribe for the first time.
+ * After that they only receive the notifications they are subscribed to.
+ */
+public final class NotificationSubscriptions {
+    private static final Map<Identifier, NotificationTopic> TOPICS = new ConcurrentHashMap<>();
+    private static final List<NotificationTopic> TOPIC_LIST = new CopyOnWriteArrayList<>();
+
+    static {
+        ManagementConnections.addCloseListener(NotificationSubscriptions::onClosed);
+    }
+
+    private NotificationSubscriptions() {}
+
+    /**
+     * Registers a notification with {@link NotificationPriority#NORMAL} priority that can be subscribed to.
+     * @param identifier The identifier of the notification.
+     * @return The topic of the notification.
+     */
+    public static NotificationTopic register(Identifier identifier) {
+        return register(identifier, NotificationPriority.NORMAL);
+    }
+
+    /**
+     * Registers a notification that can be subscribed to.
+     * @param identifier The identifier of the notification.
+     * @param priority The priority of the notification. Ignored if the notification is already registered.
+     * @return The topic of the notification.
+     */
+    public static synchronized NotificationTopic register(Identifier identifier, NotificationPriority priority) {
+        NotificationTopic topic = TOPICS.get(identifier);
+        if(topic == null) {
+            topic = new NotificationTopic(identifier, TOPIC_LIST.size(), priority);
+            TOPICS.put(identifier, topic);
+            TOPIC_LIST.add(topic);
+        }
+        return topic;
+    }
+
+    /**
+     * Subscribes a connection to notifications.
+     * @param state The state of the connection.
+     * @param identifiers The identifiers of the notifications. Unknown identifiers are ignored.
+     * @return The identifiers of all notifications the connection is subscribed to afterwards.
+     */
+    public static List<String> subscribe(ConnectionState state, Collection<String> identifiers) {
+        synchronized(state) {
+            long[] current = state.getSubscriptions();
+            long[] bits = current == null ? new long[0] : current;
+            for(String identifier : identifiers) {
+                NotificationTopic topic = get(identifier);
+                if(topic == null) {
+                    continue;
+                }
+                int word = topic.getIndex() >>> 6;
+                if(word >= bits.length) {
+                    bits = Arrays.copyOf(bits, word + 1);
+                } else if(bits == current) {
+                    bits = bits.clone();
+                }
+                if((bits[word] & (1L << topic.getIndex())) == 0) {
+                    bits[word] |= 1L << topic.getIndex();
+                    if(current != null) {
+                        topic.subscribers.incrementAndGet();
+                    }
+                }
+            }
+            if(current == null) {
+                // All topics were received before, so only the new subscriptions count
+                countSubscribers(bits, 1);
+            }
+            state.setSubscriptions(bits);
+            return list(bits);
+        }
+    }
+
+    /**
+     * Unsubscribes a connection from notifications.
+     * If the connection received all notifications before, it receives all notifications except the unsubscribed ones afterwards.
+     * @param state The state of the connection.
+     * @param identifiers The identifiers of the notifications. Unknown identifiers are ignored.
+     * @return The identifiers of all notifications the connection is subscribed to afterwards.
+     */
+    public static List<String> unsubscribe(ConnectionState state, Collection<String> identifiers) {
+        synchronized(state) {
+            long[] current = state.getSubscriptions();
+            long[] bits;
+            if(current == null) {
+                bits = new long[(TOPIC_LIST.size() + 63) >>> 6];
+                for(NotificationTopic topic : TOPIC_LIST) {
+                    bits[topic.getIndex() >>> 6] |= 1L << topic.getIndex();
+                }
+                countSubscribers(bits, 1);
+            } else {
+                bits = current.clone();
+            }
+            for(String identifier : identifiers) {
+                NotificationTopic topic = get(identifier);
+                if(topic == null || (topic.getIndex() >>> 6) >= bits.length) {
+                    continue;
+                }
+                int word = topic.getIndex() >>> 6;
+                if((bits[word] & (1L << topic.getIndex())) != 0) {
+                    bits[word] &= ~(1L << topic.getIndex());
+                    topic.subscribers.decrementAndGet();
+                }
+            }
+            state.setSubscriptions(bits);
+            return list(bits);
+        }
+    }
+
+    private static void onClosed(ConnectionState state) {
+        synchronized(state) {
+            long[] current = state.getSubscriptions();
+            if(current != null) {
+                countSubscribers(current, -1);
+                state.setSubscriptions(null);
+            }
+        }
+    }
+
+    private static NotificationTopic get(String identifier) {
+        Identifier id = Identifier.tryParse(identifier);
+        return id == null ? null : TOPICS.get(id);
+    }
+
+    private static void countSubscribers(long[] bits, int delta) {
+        for(NotificationTopic topic : TOPIC_LIST) {
+            int word = topic.getIndex() >>> 6;
+            if(word < bits.length && (bits[word] & (1L << topic.getIndex())) != 0) {
+                topic.subscribers.addAndGet(delta);
+            }
+        }
+    }
+
+    private static List<String> list(long[] bits) {
+        List<String> identifiers = new ArrayList<>();
+        for(NotificationTopic topic : TOPIC_LIST) {
+            int word = topic.getIndex() >>> 6;
+            if(word < bits.length && (bits[word] & (1L << topic.getIndex())) != 0) {
+                identifiers.add(topic.getIdentifier().toString());
+            }
+        }
+        return identifiers;
+    }
+}
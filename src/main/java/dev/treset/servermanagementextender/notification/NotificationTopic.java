@@ -0,0 +1,59 @@
+package dev.treset.servermanagementextender.notification;
+
+import dev.treset.servermanagementextender.connection.ConnectionState;
+import dev.treset.servermanagementextender.connection.ManagementConnections;
+import net.minecraft.util.Identifier;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A notification type that connections can subscribe to.
+ */
+public final class NotificationTopic {
+    private final Identifier identifier;
+    private final int index;
+    private final NotificationPriority priority;
+    final AtomicInteger subscribers = new AtomicInteger();
+
+    NotificationTopic(Identifier identifier, int index, NotificationPriority priority) {
+        this.identifier = identifier;
+        this.index = index;
+        this.priority = priority;
+    }
+
+    public Identifier getIdentifier() {
+        return identifier;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public NotificationPriority getPriority() {
+        return priority;
+    }
+
+    /**
+     * @param frame An encoded notification of this topic.
+     * @return The frame with the priority of this topic.
+     */
+    public NotificationFrame prioritize(NotificationFrame frame) {
+        return frame == null ? null : frame.withPriority(priority);
+    }
+
+    /**
+     * @return {@code true} if at least one open connection receives this notification.
+     */
+    public boolean hasListeners() {
+        return ManagementConnections.count() > 0
+                && (subscribers.get() > 0 || ManagementConnections.unfilteredCount() > 0);
+    }
+
+    /**
+     * @param state The state of a connection. May be {@code null} for connections that aren't tracked.
+     * @return {@code true} if the connection receives this notification.
+     */
+    public boolean isSubscribed(ConnectionState state) {
+        return state == null || state.isSubscribed(index);
+    }
+}
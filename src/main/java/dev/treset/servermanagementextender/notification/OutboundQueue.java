@@ -0,0 +1,355 @@
+package dev.treset.servermanagementextender.notification;
+
+import dev.treset.servermanagementextender.ServerManagementExtender;
+import dev.treset.servermanagementextender.connection.ConnectionState;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounds the memory used by notifications waiting to be written to a single connection.
+ * <p>
+ * Frames are handed to the channel directly as long as less than the write window is waiting to be flushed, the channel is writable
+ * and no frame of the same or a higher priority is queued. Otherwise they are held in a lane per {@link NotificationPriority}.
+ * Queued frames are drained by weighted round-robin over the lanes, so higher priorities bypass queued bulk traffic.
+ * Draining happens when a write of this queue completes and when the channel becomes writable again, which also covers other writes filling the channel.
+ * <p>
+ * All lanes together are limited by the configured amount of messages and bytes. When that limit is exceeded the configured {@link OverflowPolicy} is applied,
+ * evicting frames of the lowest priority first. Dropping a delta notification makes the connection receive keyframes until it is in sync again.
+ * The limits and the write window default to the values set using {@link #setDefaultLimits(int, long, OverflowPolicy)} and {@link #setDefaultWriteWindow(int)}
+ * and can be overridden for a single connection.
+ */
+public final class OutboundQueue {
+    public static final int WRITE_WINDOW_BYTES = 256 * 1024;
+
+    private static final String HANDLER_NAME = "server_management_extender_outbound_queue";
+
+    private static final NotificationPriority[] PRIORITIES = NotificationPriority.values();
+
+    private static volatile Limits defaultLimits = new Limits(1024, 16L * 1024 * 1024, OverflowPolicy.DROP_OLDEST);
+    private static volatile int defaultWriteWindow = WRITE_WINDOW_BYTES;
+    private static final LongAdder[] ACTIONS = new LongAdder[OverflowPolicy.values().length];
+    private static final LongAdder DROPPED = new LongAdder();
+    private static final AtomicInteger TOTAL_DEPTH = new AtomicInteger();
+
+    static {
+        for(int i = 0; i < ACTIONS.length; i++) {
+            ACTIONS[i] = new LongAdder();
+        }
+    }
+
+    private final Channel channel;
+    private final ConnectionState state;
+    @SuppressWarnings("unchecked")
+    private final ArrayDeque<NotificationFrame>[] lanes = new ArrayDeque[PRIORITIES.length];
+    private final AtomicLong inFlightBytes = new AtomicLong();
+    private int pendingCount;
+    private long pendingBytes;
+    private boolean closed;
+    private boolean draining;
+    // null to use the defaults
+    private Limits limits;
+    private int writeWindow;
+
+    public OutboundQueue(Channel channel) {
+        this(channel, null);
+    }
+
+    /**
+     * @param channel The channel of the connection.
+     * @param state The state of the connection, notified about dropped delta notifications. May be {@code null}.
+     */
+    public OutboundQueue(Channel channel, ConnectionState state) {
+        this.channel = channel;
+        this.state = state;
+        for(int i = 0; i < lanes.length; i++) {
+            lanes[i] = new ArrayDeque<>();
+        }
+    }
+
+    /**
+     * Sets the limits of the outbound queues of connections without their own limits. Default is 1024 messages, 16 MiB and {@link OverflowPolicy#DROP_OLDEST}.
+     * @param maxMessages The maximum amount of notifications waiting to be written to a connection.
+     * @param maxBytes The maximum size of notifications waiting to be written to a connection in bytes.
+     * @param policy What to do if a connection exceeds one of the limits.
+     */
+    public static void setDefaultLimits(int maxMessages, long maxBytes, OverflowPolicy policy) {
+        defaultLimits = Limits.of(maxMessages, maxBytes, policy);
+    }
+
+    /**
+     * Sets how many bytes may be waiting to be flushed to connections without their own write window before notifications are queued.
+     * Default is {@value #WRITE_WINDOW_BYTES} bytes.
+     * @param bytes The size of the write window in bytes.
+     */
+    public static void setDefaultWriteWindow(int bytes) {
+        if(bytes <= 0) {
+            throw new IllegalArgumentException("Write window must be positive: " + bytes);
+        }
+        defaultWriteWindow = bytes;
+    }
+
+    /**
+     * Sets the limits of this queue, overriding the default limits.
+     * @param maxMessages The maximum amount of notifications waiting to be written to this connection.
+     * @param maxBytes The maximum size of notifications waiting to be written to this connection in bytes.
+     * @param policy What to do if this connection exceeds one of the limits.
+     */
+    public synchronized void setLimits(int maxMessages, long maxBytes, OverflowPolicy policy) {
+        this.limits = Limits.of(maxMessages, maxBytes, policy);
+    }
+
+    /**
+     * Sets how many bytes may be waiting to be flushed to this connection before notifications are queued, overriding the default write window.
+     * @param bytes The size of the write window in bytes.
+     */
+    public synchronized void setWriteWindow(int bytes) {
+        if(bytes <= 0) {
+            throw new IllegalArgumentException("Write window must be positive: " + bytes);
+        }
+        this.writeWindow = bytes;
+    }
+
+    /**
+     * @param policy The overflow policy.
+     * @return How often the policy has been applied on any connection.
+     */
+    public static long getActionCount(OverflowPolicy policy) {
+        return ACTIONS[policy.ordinal()].sum();
+    }
+
+    /**
+     * @return The amount of notifications dropped on any connection because of full outbound queues.
+     */
+    public static long getDroppedCount() {
+        return DROPPED.sum();
+    }
+
+    /**
+     * @return The amount of notifications waiting to be written to any connection. Doesn't iterate the connections.
+     */
+    public static int getTotalDepth() {
+        return TOTAL_DEPTH.get();
+    }
+
+    /**
+     * Writes a frame to the connection or queues it if the connection can't keep up.
+     * @param frame The frame to write.
+     * @param priority The priority of the frame.
+     */
+    public synchronized void write(NotificationFrame frame, NotificationPriority priority) {
+        if(closed) {
+            return;
+        }
+        if(!hasPending(priority) && canWrite()) {
+            writeNow(frame);
+            return;
+        }
+
+        lanes[priority.ordinal()].addLast(frame);
+        pendingCount++;
+        TOTAL_DEPTH.incrementAndGet();
+        pendingBytes += frame.size();
+
+        Limits current = limits == null ? defaultLimits : limits;
+        if(isOverLimit(current)) {
+            overflow(current, priority);
+        }
+        // The window may have freed up without a completion of our own writes
+        drain();
+    }
+
+    /**
+     * Adds a handler to the pipeline of the connection that drains this queue when the channel becomes writable again.
+     * @param context The context of the connection handler in its pipeline. The handler is added in front of it.
+     */
+    public void watchWritability(ChannelHandlerContext context) {
+        if(context.pipeline().get(HANDLER_NAME) == null) {
+            context.pipeline().addBefore(context.name(), HANDLER_NAME, new WritabilityHandler(this));
+        }
+    }
+
+    /**
+     * @return The amount of notifications waiting to be written.
+     */
+    public synchronized int depth() {
+        return pendingCount;
+    }
+
+    /**
+     * @param priority The priority of the lane.
+     * @return The amount of notifications of the priority waiting to be written.
+     */
+    public synchronized int depth(NotificationPriority priority) {
+        return lanes[priority.ordinal()].size();
+    }
+
+    /**
+     * @return The size of notifications waiting to be written or flushed in bytes.
+     */
+    public synchronized long bufferedBytes() {
+        return pendingBytes + inFlightBytes.get();
+    }
+
+    /**
+     * Drops all queued notifications. Called when the connection is closed.
+     */
+    public synchronized void close() {
+        closed = true;
+        for(ArrayDeque<NotificationFrame> lane : lanes) {
+            lane.clear();
+        }
+        TOTAL_DEPTH.addAndGet(-pendingCount);
+        pendingCount = 0;
+        pendingBytes = 0;
+    }
+
+    private boolean hasPending(NotificationPriority priority) {
+        for(int i = priority.ordinal(); i < lanes.length; i++) {
+            if(!lanes[i].isEmpty()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean canWrite() {
+        return inFlightBytes.get() < (writeWindow == 0 ? defaultWriteWindow : writeWindow) && channel.isWritable();
+    }
+
+    private boolean isOverLimit(Limits current) {
+        return pendingCount > current.maxMessages() || pendingBytes > current.maxBytes();
+    }
+
+    private void writeNow(NotificationFrame frame) {
+        int size = frame.size();
+        inFlightBytes.addAndGet(size);
+        frame.write(channel).addListener(future -> {
+            inFlightBytes.addAndGet(-size);
+            drain();
+        });
+    }
+
+    private synchronized void drain() {
+        // Writes completing synchronously call this again from their listener, the running loop already picks up the freed window
+        if(draining) {
+            return;
+        }
+        draining = true;
+        try {
+            while(!closed && pendingCount > 0 && canWrite()) {
+                // Weighted round-robin, highest priority first
+                for(int i = lanes.length - 1; i >= 0 && canWrite(); i--) {
+                    ArrayDeque<NotificationFrame> lane = lanes[i];
+                    for(int n = 0; n < PRIORITIES[i].getWeight() && !lane.isEmpty() && canWrite(); n++) {
+                        writeNow(dequeued(lane.pollFirst()));
+                    }
+                }
+            }
+        } finally {
+            draining = false;
+        }
+    }
+
+    private NotificationFrame dequeued(NotificationFrame frame) {
+        pendingCount--;
+        TOTAL_DEPTH.decrementAndGet();
+        pendingBytes -= frame.size();
+        return frame;
+    }
+
+    private void dropped(NotificationFrame frame) {
+        dequeued(frame);
+        DROPPED.increment();
+        if(state != null) {
+            frame.dropped(state);
+        }
+    }
+
+    private void overflow(Limits current, NotificationPriority priority) {
+        ACTIONS[current.policy().ordinal()].increment();
+        switch(current.policy()) {
+            case DROP_NEWEST -> {
+                // The new frame is in the lowest lane unless lower priority traffic is queued, which is evicted instead
+                dropped(lowestLane().pollLast());
+            }
+            case DROP_OLDEST -> removeOldest(current);
+            case COALESCE -> {
+                removeOlderOfSameType(lanes[priority.ordinal()]);
+                removeOldest(current);
+            }
+            case DISCONNECT -> {
+                ServerManagementExtender.LOGGER.warn("Closing management connection {}: outbound notification queue is full", channel.remoteAddress());
+                DROPPED.add(pendingCount);
+                close();
+                channel.close();
+            }
+        }
+    }
+
+    private ArrayDeque<NotificationFrame> lowestLane() {
+        for(ArrayDeque<NotificationFrame> lane : lanes) {
+            if(!lane.isEmpty()) {
+                return lane;
+            }
+        }
+        return null;
+    }
+
+    private void removeOldest(Limits current) {
+        while(pendingCount > 0 && isOverLimit(current)) {
+            dropped(lowestLane().pollFirst());
+        }
+    }
+
+    private void removeOlderOfSameType(ArrayDeque<NotificationFrame> lane) {
+        NotificationFrame newest = lane.peekLast();
+        if(newest == null || newest.getMethod() == null) {
+            return;
+        }
+        Iterator<NotificationFrame> iterator = lane.iterator();
+        while(iterator.hasNext()) {
+            NotificationFrame frame = iterator.next();
+            if(frame == newest) {
+                return;
+            }
+            if(newest.getMethod().equals(frame.getMethod())) {
+                iterator.remove();
+                dropped(frame);
+                return;
+            }
+        }
+    }
+
+    private static final class WritabilityHandler extends ChannelInboundHandlerAdapter {
+        private final OutboundQueue queue;
+
+        private WritabilityHandler(OutboundQueue queue) {
+            this.queue = queue;
+        }
+
+        @Override
+        public void channelWritabilityChanged(ChannelHandlerContext context) {
+            if(context.channel().isWritable()) {
+                queue.drain();
+            }
+            context.fireChannelWritabilityChanged();
+        }
+    }
+
+    private record Limits(int maxMessages, long maxBytes, OverflowPolicy policy) {
+        private static Limits of(int maxMessages, long maxBytes, OverflowPolicy policy) {
+            if(maxMessages <= 0 || maxBytes <= 0) {
+                throw new IllegalArgumentException("Limits must be positive: " + maxMessages + " messages, " + maxBytes + " bytes");
+            }
+            return new Limits(maxMessages, maxBytes, Objects.requireNonNull(policy));
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package dev.treset.servermanagementextender.notification;
+
+/**
+ * What to do when the outbound queue of a connection is full.
+ */
+public enum OverflowPolicy {
+    /**
+     * Drops the oldest queued notifications until the new one fits.
+     */
+    DROP_OLDEST,
+    /**
+     * Drops the new notification.
+     */
+    DROP_NEWEST,
+    /**
+     * Replaces the oldest queued notification of the same type with the new one. Drops the oldest queued notifications if there is none.
+     */
+    COALESCE,
+    /**
+     * Closes the connection.
+     */
+    DISCONNECT
+}
@@ -0,0 +1,19 @@
+package dev.treset.servermanagementextender.notification;
+
+/**
+ * What to do with notifications exceeding the rate limit of a notification handler.
+ */
+public enum RateLimitPolicy {
+    /**
+     * Drops the notification.
+     */
+    DROP,
+    /**
+     * Holds back the latest notification and sends it at the end of the first tick where the rate limit allows it.
+     */
+    COALESCE,
+    /**
+     * Drops the notification and periodically sends a {@code server-management-extender:notification/suppressed} notification containing the amount of dropped notifications.
+     */
+    SUMMARIZE
+}
@@ -0,0 +1,105 @@
+package dev.treset.servermanagementextender.notification;
+
+import net.minecraft.util.Identifier;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Limits the rate of a notification using a token bucket.
+ * <p>
+ * The bucket is stored as the theoretical arrival time of the next notification in a single {@link AtomicLong}, so acquiring a token is lock-free.
+ * @param <T> The type of object the notification sends.
+ */
+public final class RateLimiter<T> {
+    private static final long SUMMARY_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final Identifier method;
+    private final long intervalNanos;
+    private final long burstNanos;
+    private final RateLimitPolicy policy;
+    private final Consumer<T> sink;
+
+    private final AtomicLong nextArrival;
+    private final AtomicReference<T> held = new AtomicReference<>();
+    private final AtomicLong suppressed = new AtomicLong();
+    private volatile long lastSummary;
+
+    /**
+     * @param method The identifier of the notification method.
+     * @param eventsPerSecond The sustained amount of notifications allowed per second.
+     * @param burst The amount of notifications allowed at once.
+     * @param policy What to do with notifications exceeding the limit.
+     * @param sink The function sending a notification that is allowed by the limit.
+     */
+    public RateLimiter(Identifier method, double eventsPerSecond, int burst, RateLimitPolicy policy, Consumer<T> sink) {
+        this.method = method;
+        this.intervalNanos = Math.max(1, (long)(TimeUnit.SECONDS.toNanos(1) / eventsPerSecond));
+        this.burstNanos = intervalNanos * burst;
+        this.policy = policy;
+        this.sink = sink;
+        long now = System.nanoTime();
+        this.nextArrival = new AtomicLong(now);
+        this.lastSummary = now;
+    }
+
+    /**
+     * Sends a notification if the limit allows it, otherwise applies the policy.
+     * @param payload The notification content.
+     */
+    public void send(T payload) {
+        if(tryAcquire()) {
+            sink.accept(payload);
+            return;
+        }
+        switch(policy) {
+            case DROP -> {}
+            case COALESCE -> held.set(payload);
+            case SUMMARIZE -> suppressed.incrementAndGet();
+        }
+    }
+
+    /**
+     * Sends held back notifications and summaries. Called at the end of every tick.
+     */
+    public void flush() {
+        if(policy == RateLimitPolicy.COALESCE) {
+            if(held.get() != null && tryAcquire()) {
+                T payload = held.getAndSet(null);
+                if(payload != null) {
+                    sink.accept(payload);
+                }
+            }
+        } else if(policy == RateLimitPolicy.SUMMARIZE) {
+            long now = System.nanoTime();
+            if(suppressed.get() > 0 && now - lastSummary >= SUMMARY_INTERVAL_NANOS) {
+                lastSummary = now;
+                long count = suppressed.getAndSet(0);
+                SuppressedNotification.HANDLER.send(new SuppressedNotification(method.toString(), (int)Math.min(count, Integer.MAX_VALUE)));
+            }
+        }
+    }
+
+    /**
+     * @return The amount of notifications suppressed since the last summary.
+     */
+    public long getSuppressedCount() {
+        return suppressed.get();
+    }
+
+    private boolean tryAcquire() {
+        long now = System.nanoTime();
+        while(true) {
+            long arrival = nextArrival.get();
+            long next = Math.max(arrival, now) + intervalNanos;
+            if(next - now > burstNanos) {
+                return false;
+            }
+            if(nextArrival.compareAndSet(arrival, next)) {
+                return true;
+            }
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package dev.treset.servermanagementextender.notification;
+
+import dev.treset.servermanagementextender.ServerManagementExtender;
+import dev.treset.servermanagementextender.wrapper.ManagementSchema;
+import dev.treset.servermanagementextender.wrapper.RpcNotificationHandler;
+import dev.treset.servermanagementextender.wrapper.ServerManagementInitialized;
+
+/**
+ * Sent instead of notifications that exceeded their rate limit with the {@link RateLimitPolicy#SUMMARIZE} policy.
+ * @param notification The identifier of the suppressed notification.
+ * @param count The amount of notifications suppressed since the last summary.
+ */
+@ServerManagementInitialized
+public record SuppressedNotification(
+        String notification,
+        int count
+) {
+    public static final ManagementSchema<SuppressedNotification> SCHEMA = ManagementSchema
+            .<SuppressedNotification>builder(ServerManagementExtender.MOD_ID, "suppressed_notification")
+            .property("notification", ManagementSchema.STRING, SuppressedNotification::notification)
+            .property("count", ManagementSchema.INTEGER, SuppressedNotification::count)
+            .build(SuppressedNotification.class);
+
+    public static final RpcNotificationHandler<SuppressedNotification> HANDLER = RpcNotificationHandler
+            .builder(SCHEMA)
+            .description("Notifications were suppressed because they exceeded their rate limit")
+            .identifier(ServerManagementExtender.MOD_ID, "notification/suppressed")
+            .build();
+}
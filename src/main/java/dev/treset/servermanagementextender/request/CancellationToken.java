@@ -0,0 +1,95 @@
+package dev.treset.servermanagementextender.request;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.function.Supplier;
+
+/**
+ * Signals that the result of a request is no longer needed because it timed out or the connection was closed.
+ * <p>
+ * Handlers get the token of their request using {@link #current()} when they are called and should stop their work once it is cancelled.
+ * Handlers running on virtual threads are interrupted when their request is cancelled.
+ */
+public final class CancellationToken {
+    /**
+     * A token that is never cancelled. Returned by {@link #current()} outside of request handlers.
+     */
+    public static final CancellationToken NONE = new CancellationToken();
+
+    private static final ThreadLocal<CancellationToken> CURRENT = new ThreadLocal<>();
+
+    private volatile boolean cancelled;
+    private List<Runnable> listeners = new ArrayList<>();
+
+    CancellationToken() {}
+
+    /**
+     * @return The token of the request whose handler is currently called on this thread or {@link #NONE}.
+     *         Must be called before the handler hands off work to other threads.
+     */
+    public static CancellationToken current() {
+        CancellationToken token = CURRENT.get();
+        return token == null ? NONE : token;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * @throws CancellationException If the request has been cancelled.
+     */
+    public void throwIfCancelled() {
+        if(cancelled) {
+            throw new CancellationException("Request was cancelled");
+        }
+    }
+
+    /**
+     * Registers a function called when the request is cancelled. Called immediately if the request is already cancelled.
+     * @param listener The function.
+     */
+    public void onCancel(Runnable listener) {
+        synchronized(this) {
+            if(!cancelled) {
+                if(this != NONE) {
+                    listeners.add(listener);
+                }
+                return;
+            }
+        }
+        listener.run();
+    }
+
+    void cancel() {
+        List<Runnable> toRun;
+        synchronized(this) {
+            if(cancelled) {
+                return;
+            }
+            cancelled = true;
+            toRun = listeners;
+            listeners = null;
+        }
+        for(Runnable listener : toRun) {
+            listener.run();
+        }
+    }
+
+    /**
+     * Runs a task with this token as the {@link #current()} token of the calling thread.
+     * @param task The task.
+     * @return The result of the task.
+     * @param <R> The type of the result.
+     */
+    public <R> R call(Supplier<R> task) {
+        CancellationToken previous = CURRENT.get();
+        CURRENT.set(this);
+        try {
+            return task.get();
+        } finally {
+            CURRENT.set(previous);
+        }
+    }
+}
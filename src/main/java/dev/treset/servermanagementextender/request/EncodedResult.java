@@ -0,0 +1,54 @@
+package dev.treset.servermanagementextender.request;
+
+import com.google.gson.JsonElement;
+import com.mojang.serialization.Codec;
+import dev.treset.servermanagementextender.codec.JsonStreamEncoders;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The result of a request that has been encoded once and can be written in any number of responses.
+ * <p>
+ * The encoded result is stored in an immutable buffer that is shared between all responses, so cached results don't run the codec or JSON serialization again.
+ */
+public final class EncodedResult {
+    private final ByteBuf content;
+
+    private EncodedResult(ByteBuf content) {
+        this.content = content;
+    }
+
+    /**
+     * @param result The encoded result content.
+     * @return The serialized result.
+     */
+    public static EncodedResult of(JsonElement result) {
+        byte[] bytes = result.toString().getBytes(StandardCharsets.UTF_8);
+        return new EncodedResult(Unpooled.unreleasableBuffer(Unpooled.wrappedBuffer(bytes).asReadOnly()));
+    }
+
+    /**
+     * Writes a result directly into a buffer using its {@link JsonStreamEncoders stream encoder}.
+     * @param codec The codec of the result.
+     * @param result The result content.
+     * @return The serialized result.
+     * @param <R> The type of the result content.
+     * @throws IllegalStateException If the result can't be encoded.
+     */
+    public static <R> EncodedResult of(Codec<R> codec, R result) throws IllegalStateException {
+        return new EncodedResult(Unpooled.unreleasableBuffer(JsonStreamEncoders.encode(codec, result, "", "").asReadOnly()));
+    }
+
+    /**
+     * @return The size of the encoded result in bytes.
+     */
+    public int size() {
+        return content.readableBytes();
+    }
+
+    ByteBuf content() {
+        return content.duplicate();
+    }
+}
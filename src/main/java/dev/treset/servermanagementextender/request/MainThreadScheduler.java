@@ -0,0 +1,90 @@
+package dev.treset.servermanagementextender.request;
+
+import dev.treset.servermanagementextender.ServerManagementExtender;
+
+import java.time.Duration;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Runs work of request handlers on the server thread.
+ * <p>
+ * Work can be submitted from any thread and is run at the end of every server tick until the configured time budget is used up.
+ * Remaining work is carried over to the next tick, so bursts of requests don't increase the tick time beyond the budget.
+ * At least one task is run every tick so work always makes progress.
+ */
+public final class MainThreadScheduler {
+    private static final Queue<Runnable> TASKS = new ConcurrentLinkedQueue<>();
+    private static final AtomicInteger PENDING = new AtomicInteger();
+
+    private static volatile long budgetNanos = Duration.ofMillis(5).toNanos();
+
+    private MainThreadScheduler() {}
+
+    /**
+     * Sets the time spent running submitted work per tick. Default is 5 ms.
+     * @param budget The time budget per tick.
+     */
+    public static void setBudget(Duration budget) {
+        if(budget.isNegative() || budget.isZero()) {
+            throw new IllegalArgumentException("Budget must be positive: " + budget);
+        }
+        budgetNanos = budget.toNanos();
+    }
+
+    /**
+     * Schedules work to be run on the server thread.
+     * @param task The work to run.
+     * @return A future completed with the result of the work on the server thread.
+     * @param <R> The type of the result.
+     */
+    public static <R> CompletableFuture<R> submit(Supplier<R> task) {
+        CompletableFuture<R> future = new CompletableFuture<>();
+        execute(() -> {
+            try {
+                future.complete(task.get());
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Schedules work to be run on the server thread.
+     * @param task The work to run.
+     */
+    public static void execute(Runnable task) {
+        PENDING.incrementAndGet();
+        TASKS.add(task);
+    }
+
+    /**
+     * @return The amount of tasks waiting to be run.
+     */
+    public static int getPendingCount() {
+        return PENDING.get();
+    }
+
+    /**
+     * Runs submitted work until the time budget is used up. Called at the end of every server tick.
+     */
+    public static void drain() {
+        long start = System.nanoTime();
+        long budget = budgetNanos;
+        boolean ran = false;
+        Runnable task;
+        while((!ran || System.nanoTime() - start < budget) && (task = TASKS.poll()) != null) {
+            PENDING.decrementAndGet();
+            ran = true;
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                ServerManagementExtender.LOGGER.error("Failed to run scheduled request work", e);
+            }
+        }
+    }
+}
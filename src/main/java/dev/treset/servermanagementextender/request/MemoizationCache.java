@@ -0,0 +1,148 @@
+package dev.treset.servermanagementextender.request;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Caches the encoded responses of a request method keyed by the decoded request parameter.
+ * <p>
+ * Holds at most the configured amount of responses and evicts the least recently used one when full.
+ * Responses expire after the configured time. Hits skip both the handler and the codec.
+ * Concurrent misses of the same parameter share a single handler invocation, which runs in a detached context
+ * and is only cancelled once all waiting requests have timed out or been cancelled.
+ * @param <T> The type of object in the request parameter. Must implement {@code equals} and {@code hashCode}.
+ */
+public final class MemoizationCache<T> implements ResultCache<T> {
+    private final int maxSize;
+    private final long ttlNanos;
+    private final Map<T, Entry> entries;
+    private final Map<T, SharedLoad> loading = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param maxSize The maximum amount of cached responses.
+     * @param ttl How long a response is served after it was created.
+     */
+    public MemoizationCache(int maxSize, Duration ttl) {
+        if(maxSize <= 0) {
+            throw new IllegalArgumentException("Max size must be positive: " + maxSize);
+        }
+        if(ttl.isNegative() || ttl.isZero()) {
+            throw new IllegalArgumentException("TTL must be positive: " + ttl);
+        }
+        this.maxSize = maxSize;
+        this.ttlNanos = ttl.toNanos();
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<T, Entry> eldest) {
+                if(size() > MemoizationCache.this.maxSize) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    @Override
+    public CompletableFuture<EncodedResult> get(T parameter, RequestContext context, Function<RequestContext, CompletableFuture<EncodedResult>> loader) {
+        long now = System.nanoTime();
+        Entry entry;
+        synchronized(entries) {
+            entry = entries.get(parameter);
+            if(entry != null && now - entry.createdAt() >= ttlNanos) {
+                entries.remove(parameter);
+                entry = null;
+            }
+        }
+        if(entry != null) {
+            hits.increment();
+            return CompletableFuture.completedFuture(entry.result());
+        }
+
+        while(true) {
+            SharedLoad created = new SharedLoad(context);
+            SharedLoad running = loading.putIfAbsent(parameter, created);
+            if(running != null) {
+                CompletableFuture<EncodedResult> joined = running.join(context);
+                if(joined != null) {
+                    hits.increment();
+                    return joined;
+                }
+                // All requests waiting for the running load were cancelled
+                loading.remove(parameter, running);
+                continue;
+            }
+
+            misses.increment();
+            CompletableFuture<EncodedResult> joined = created.join(context);
+            created.start(loader).whenComplete((result, error) -> {
+                // Not stored if the parameter was invalidated during the load
+                if(loading.remove(parameter, created) && error == null) {
+                    synchronized(entries) {
+                        entries.put(parameter, new Entry(result, System.nanoTime()));
+                    }
+                }
+            });
+            return joined;
+        }
+    }
+
+    /**
+     * Discards the cached response for a parameter.
+     * @param parameter The request parameter.
+     */
+    public void invalidate(T parameter) {
+        synchronized(entries) {
+            entries.remove(parameter);
+            loading.remove(parameter);
+        }
+    }
+
+    /**
+     * Discards all cached responses.
+     */
+    public void invalidateAll() {
+        synchronized(entries) {
+            entries.clear();
+            loading.clear();
+        }
+    }
+
+    /**
+     * @return A snapshot of the statistics of this cache.
+     */
+    public Statistics getStatistics() {
+        int size;
+        synchronized(entries) {
+            size = entries.size();
+        }
+        return new Statistics(size, maxSize, hits.sum(), misses.sum(), evictions.sum());
+    }
+
+    private record Entry(EncodedResult result, long createdAt) {}
+
+    /**
+     * Statistics of a memoization cache.
+     * @param size The amount of cached responses.
+     * @param maxSize The maximum amount of cached responses.
+     * @param hits The amount of requests answered from the cache or by the handler invocation of another request.
+     * @param misses The amount of requests that ran the handler.
+     * @param evictions The amount of responses evicted because the cache was full.
+     */
+    public record Statistics(
+            int size,
+            int maxSize,
+            long hits,
+            long misses,
+            long evictions
+    ) {}
+}
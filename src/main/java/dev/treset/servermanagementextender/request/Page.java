@@ -0,0 +1,32 @@
+package dev.treset.servermanagementextender.request;
+
+import dev.treset.servermanagementextender.wrapper.ManagementSchema;
+import net.minecraft.util.Identifier;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * A page of the response of a paginated request method.
+ * @param items The items of the page.
+ * @param nextCursor The cursor to request the next page with. Empty if this is the last page.
+ * @param <E> The type of the items.
+ */
+public record Page<E>(
+        List<E> items,
+        Optional<String> nextCursor
+) {
+    /**
+     * Creates the schema of pages of an item schema.
+     * @param identifier The identifier of the page schema.
+     * @param itemSchema The schema of the items.
+     * @return The page schema.
+     * @param <E> The type of the items.
+     */
+    public static <E> ManagementSchema<Page<E>> schema(Identifier identifier, ManagementSchema<E> itemSchema) {
+        return ManagementSchema.<Page<E>>builder(identifier)
+                .property("items", itemSchema.asList(), Page::items)
+                .optionalProperty("next_cursor", ManagementSchema.STRING, Page::nextCursor)
+                .build(Page::new);
+    }
+}
@@ -0,0 +1,22 @@
+package dev.treset.servermanagementextender.request;
+
+import dev.treset.servermanagementextender.ServerManagementExtender;
+import dev.treset.servermanagementextender.wrapper.ManagementSchema;
+
+import java.util.Optional;
+
+/**
+ * The parameter of a paginated request method.
+ * @param cursor The cursor returned with the previous page. Empty to request the first page.
+ * @param limit The maximum amount of items in the page. Empty to use the default page size of the method.
+ */
+public record PageRequest(
+        Optional<String> cursor,
+        Optional<Integer> limit
+) {
+    public static final ManagementSchema<PageRequest> SCHEMA = ManagementSchema
+            .<PageRequest>builder(ServerManagementExtender.MOD_ID, "page_request")
+            .optionalProperty("cursor", ManagementSchema.STRING, PageRequest::cursor)
+            .optionalProperty("limit", ManagementSchema.INTEGER, PageRequest::limit)
+            .build(PageRequest.class);
+}
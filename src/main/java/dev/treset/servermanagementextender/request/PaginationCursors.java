@@ -0,0 +1,286 @@
+package dev.treset.servermanagementextender.request;
+
+import dev.treset.servermanagementextender.connection.ConnectionState;
+import dev.treset.servermanagementextender.connection.ManagementConnections;
+import net.minecraft.server.dedicated.management.network.ManagementConnectionId;
+
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Keeps the server-side cursors of a paginated request method.
+ * <p>
+ * A cursor holds the stream of items of a request and is advanced by one page per request, so items are only produced when they are requested
+ * and memory stays flat regardless of the amount of items.
+ * Cursors belong to the connection that created them. They are closed when they expire, are exhausted or the connection is closed.
+ * Each connection may only hold a limited amount of open cursors per method, further requests for a first page are answered with a {@link RpcException#QUOTA_EXCEEDED} error.
+ * <p>
+ * A cursor is removed before its stream is closed, and its stream is never closed while a page is read from it.
+ * @param <E> The type of the items.
+ */
+public final class PaginationCursors<E> {
+    /**
+     * The default maximum amount of open cursors per connection.
+     */
+    public static final int DEFAULT_MAX_CURSORS = 16;
+
+    private static final List<PaginationCursors<?>> ALL = new CopyOnWriteArrayList<>();
+    private static final long PURGE_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final SecureRandom RANDOM = new SecureRandom();
+    private static volatile long lastPurge = System.nanoTime();
+
+    static {
+        ManagementConnections.addCloseListener(PaginationCursors::onClosed);
+    }
+
+    private final Map<String, Cursor<E>> cursors = new ConcurrentHashMap<>();
+    private final Map<ManagementConnectionId, Integer> counts = new ConcurrentHashMap<>();
+    private final int defaultLimit;
+    private final int maxLimit;
+    private final long expiryNanos;
+    private final int maxCursors;
+
+    /**
+     * @param defaultLimit The amount of items in a page if the request doesn't specify a limit.
+     * @param maxLimit The maximum amount of items in a page.
+     * @param expiry How long a cursor is kept after it was last used.
+     */
+    public PaginationCursors(int defaultLimit, int maxLimit, Duration expiry) {
+        this(defaultLimit, maxLimit, expiry, DEFAULT_MAX_CURSORS);
+    }
+
+    /**
+     * @param defaultLimit The amount of items in a page if the request doesn't specify a limit.
+     * @param maxLimit The maximum amount of items in a page.
+     * @param expiry How long a cursor is kept after it was last used.
+     * @param maxCursors The maximum amount of open cursors per connection.
+     */
+    public PaginationCursors(int defaultLimit, int maxLimit, Duration expiry, int maxCursors) {
+        if(defaultLimit <= 0 || maxLimit < defaultLimit) {
+            throw new IllegalArgumentException("Invalid page size: default " + defaultLimit + ", max " + maxLimit);
+        }
+        if(expiry == null || expiry.isNegative() || expiry.isZero()) {
+            throw new IllegalArgumentException("Expiry must be positive: " + expiry);
+        }
+        if(maxCursors <= 0) {
+            throw new IllegalArgumentException("Max cursors must be positive: " + maxCursors);
+        }
+        this.defaultLimit = defaultLimit;
+        this.maxLimit = maxLimit;
+        this.expiryNanos = expiry.toNanos();
+        this.maxCursors = maxCursors;
+        ALL.add(this);
+    }
+
+    /**
+     * Closes expired cursors of all paginated methods. Called at the end of every server tick, purges at most once per second.
+     * Cursors a page is currently read from are skipped, so this never waits for a page.
+     */
+    public static void purgeExpired() {
+        long now = System.nanoTime();
+        if(now - lastPurge < PURGE_INTERVAL_NANOS) {
+            return;
+        }
+        lastPurge = now;
+        for(PaginationCursors<?> store : ALL) {
+            store.purge(now);
+        }
+    }
+
+    /**
+     * Gets the next page of a request.
+     * @param source Creates the stream of all items. Only called for the first page.
+     * @param request The page request.
+     * @param owner The connection requesting the page.
+     * @return The page.
+     */
+    public Page<E> page(Supplier<Stream<E>> source, PageRequest request, ManagementConnectionId owner) {
+        int limit = request.limit().orElse(defaultLimit);
+        if(limit <= 0 || limit > maxLimit) {
+            throw new RpcException(RpcException.INVALID_PARAMS, "Limit must be between 1 and " + maxLimit + ": " + limit);
+        }
+
+        String id;
+        Cursor<E> cursor;
+        if(request.cursor().isPresent()) {
+            id = request.cursor().get();
+            cursor = cursors.get(id);
+            if(cursor == null || !Objects.equals(cursor.owner, owner)) {
+                throw unknownCursor(id);
+            }
+        } else {
+            id = null;
+            reserve(owner);
+            try {
+                cursor = new Cursor<>(source.get(), owner);
+            } catch (RuntimeException e) {
+                release(owner);
+                throw e;
+            }
+        }
+
+        cursor.lock.lock();
+        try {
+            if(cursor.discarded || System.nanoTime() - cursor.lastUsed >= expiryNanos) {
+                throw unknownCursor(id);
+            }
+            List<E> items = new ArrayList<>(Math.min(limit, 256));
+            while(items.size() < limit && cursor.iterator.hasNext()) {
+                items.add(cursor.iterator.next());
+            }
+            cursor.lastUsed = System.nanoTime();
+
+            if(!cursor.iterator.hasNext()) {
+                if(id == null) {
+                    release(owner);
+                    cursor.discarded = true;
+                } else {
+                    discard(id, cursor);
+                }
+                return new Page<>(items, Optional.empty());
+            }
+            if(id == null) {
+                id = newId();
+                cursors.put(id, cursor);
+            }
+            return new Page<>(items, Optional.of(id));
+        } catch (RuntimeException e) {
+            if(id == null) {
+                // The cursor of a failed first page is never stored
+                release(owner);
+                cursor.discarded = true;
+            }
+            throw e;
+        } finally {
+            cursor.unlock();
+        }
+    }
+
+    /**
+     * @return The amount of open cursors.
+     */
+    public int size() {
+        return cursors.size();
+    }
+
+    private void purge(long now) {
+        for(Map.Entry<String, Cursor<E>> entry : cursors.entrySet()) {
+            Cursor<E> cursor = entry.getValue();
+            if(!cursor.lock.isLocked() && now - cursor.lastUsed >= expiryNanos) {
+                discard(entry.getKey(), cursor);
+            }
+        }
+    }
+
+    private void discard(String id, Cursor<E> cursor) {
+        if(cursors.remove(id, cursor)) {
+            release(cursor.owner);
+            cursor.discard();
+        }
+    }
+
+    private void reserve(ManagementConnectionId owner) {
+        if(owner == null) {
+            return;
+        }
+        counts.compute(owner, (key, count) -> {
+            int next = count == null ? 1 : count + 1;
+            if(next > maxCursors) {
+                throw new RpcException(RpcException.QUOTA_EXCEEDED, "Too many open cursors, at most " + maxCursors + " are allowed");
+            }
+            return next;
+        });
+    }
+
+    private void release(ManagementConnectionId owner) {
+        if(owner != null) {
+            counts.computeIfPresent(owner, (key, count) -> count <= 1 ? null : count - 1);
+        }
+    }
+
+    private static void onClosed(ConnectionState state) {
+        for(PaginationCursors<?> store : ALL) {
+            store.close(state.getId());
+        }
+    }
+
+    private void close(ManagementConnectionId owner) {
+        for(Map.Entry<String, Cursor<E>> entry : cursors.entrySet()) {
+            if(Objects.equals(entry.getValue().owner, owner)) {
+                discard(entry.getKey(), entry.getValue());
+            }
+        }
+        if(owner != null) {
+            counts.remove(owner);
+        }
+    }
+
+    private static RpcException unknownCursor(String id) {
+        return new RpcException(RpcException.INVALID_PARAMS, "Unknown or expired cursor: " + id);
+    }
+
+    private static String newId() {
+        byte[] bytes = new byte[18];
+        RANDOM.nextBytes(bytes);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    private static final class Cursor<E> {
+        private final Stream<E> stream;
+        private final Iterator<E> iterator;
+        private final ManagementConnectionId owner;
+        private final ReentrantLock lock = new ReentrantLock();
+        private volatile long lastUsed = System.nanoTime();
+        private volatile boolean discarded;
+        // Guarded by lock
+        private boolean closed;
+
+        private Cursor(Stream<E> stream, ManagementConnectionId owner) {
+            this.stream = stream;
+            this.iterator = stream.iterator();
+            this.owner = owner;
+        }
+
+        /**
+         * Marks the cursor as discarded and closes its stream, or leaves closing to the thread currently reading a page.
+         */
+        private void discard() {
+            discarded = true;
+            closeIfUnused();
+        }
+
+        private void unlock() {
+            lock.unlock();
+            // discard() may have failed to get the lock while the page was read
+            if(discarded) {
+                closeIfUnused();
+            }
+        }
+
+        private void closeIfUnused() {
+            if(lock.tryLock()) {
+                try {
+                    if(!closed) {
+                        closed = true;
+                        stream.close();
+                    }
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package dev.treset.servermanagementextender.request;
+
+import com.google.gson.JsonElement;
+import io.netty.channel.Channel;
+import net.minecraft.server.dedicated.management.dispatch.ManagementHandlerDispatcher;
+import net.minecraft.server.dedicated.management.network.ManagementConnectionHandler;
+import net.minecraft.server.dedicated.management.network.ManagementConnectionId;
+import net.minecraft.util.Identifier;
+
+/**
+ * A single incoming request handled by the library instead of the vanilla request processing.
+ */
+public final class RequestContext {
+    private final ManagementConnectionHandler connection;
+    private final Channel channel;
+    private final ManagementConnectionId connectionId;
+    private final ManagementHandlerDispatcher dispatcher;
+    private final JsonElement id;
+    private final Identifier method;
+    private final CancellationToken cancellation = new CancellationToken();
+
+    RequestContext(ManagementConnectionHandler connection, Channel channel, ManagementConnectionId connectionId, ManagementHandlerDispatcher dispatcher, JsonElement id, Identifier method) {
+        this.connection = connection;
+        this.channel = channel;
+        this.connectionId = connectionId;
+        this.dispatcher = dispatcher;
+        this.id = id;
+        this.method = method;
+    }
+
+    /**
+     * Creates a context for work shared between requests, like a collapsed or cached handler invocation.
+     * The context has the method and dispatcher of this request, but no connection or id, and its own cancellation token.
+     * @return The detached context.
+     */
+    RequestContext detach() {
+        return new RequestContext(null, null, null, dispatcher, null, method);
+    }
+
+    /**
+     * @return The connection that sent the request or {@code null} if this context is {@link #detach() detached}.
+     */
+    public ManagementConnectionHandler getConnection() {
+        return connection;
+    }
+
+    /**
+     * @return The channel of the connection or {@code null} if this context is {@link #detach() detached}.
+     */
+    public Channel getChannel() {
+        return channel;
+    }
+
+    /**
+     * @return The id of the connection or {@code null} if this context is {@link #detach() detached}.
+     */
+    public ManagementConnectionId getConnectionId() {
+        return connectionId;
+    }
+
+    public ManagementHandlerDispatcher getDispatcher() {
+        return dispatcher;
+    }
+
+    /**
+     * @return The JSON-RPC id of the request or {@code null} if the request is a notification that doesn't expect a response.
+     */
+    public JsonElement getId() {
+        return id;
+    }
+
+    public Identifier getMethod() {
+        return method;
+    }
+
+    public CancellationToken getCancellation() {
+        return cancellation;
+    }
+}
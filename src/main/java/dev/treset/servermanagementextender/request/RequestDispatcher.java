@@ -0,0 +1,427 @@
+package dev.treset.servermanagementextender.request;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import dev.treset.servermanagementextender.ServerManagementExtender;
+import dev.treset.servermanagementextender.accessors.ManagementConnectionHandlerAccessor;
+import dev.treset.servermanagementextender.connection.ConnectionState;
+import dev.treset.servermanagementextender.connection.ManagementConnections;
+import dev.treset.servermanagementextender.metrics.RequestEvent;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.channel.Channel;
+import net.minecraft.server.dedicated.management.network.ManagementConnectionHandler;
+import net.minecraft.server.dedicated.management.network.ManagementConnectionId;
+import net.minecraft.util.Identifier;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+
+/**
+ * Handles incoming requests for methods registered with the library before they reach the vanilla request processing.
+ * <p>
+ * Handlers return futures, so the connection continues processing other requests while a handler is running.
+ * The response is written when the future completes, which means responses may be sent in a different order than the requests were received.
+ * Requests in batches are split off and handled the same way; their responses are sent as one array once all of them completed.
+ * Single requests are read directly from the received frame if possible, so large parameters are decoded without building a {@code JsonElement} tree.
+ * If a connection quota is set, it is checked for every request before it is processed.
+ * <p>
+ * Requests time out after the timeout of their method or the timeout sent by the client in the {@value #TIMEOUT_MEMBER} member, whichever is shorter.
+ * Timed out requests are answered with a {@link RpcException#TIMEOUT} error and their {@link CancellationToken} is cancelled.
+ * All requests of a connection are cancelled when it is closed.
+ * <p>
+ * Every request of a library method is recorded as a {@link RequestEvent} if the event is enabled in a flight recording.
+ */
+public final class RequestDispatcher {
+    /**
+     * The non-standard request member a client can use to set the maximum time in milliseconds it waits for the response.
+     */
+    public static final String TIMEOUT_MEMBER = "timeout_ms";
+
+    private static final TypeAdapter<JsonElement> JSON_ELEMENT = new Gson().getAdapter(JsonElement.class);
+    private static final Map<Identifier, RpcRequestMethod<?, ?>> METHODS = new ConcurrentHashMap<>();
+    private static final byte[] METHOD_MEMBER = "\"method\"".getBytes(StandardCharsets.US_ASCII);
+    private static final Map<ManagementConnectionId, Set<RequestContext>> IN_FLIGHT = new ConcurrentHashMap<>();
+    private static final ScheduledThreadPoolExecutor TIMEOUTS = new ScheduledThreadPoolExecutor(1, runnable -> {
+        Thread thread = new Thread(runnable, "Server Management Request Timeouts");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    static {
+        TIMEOUTS.setRemoveOnCancelPolicy(true);
+        ManagementConnections.addCloseListener(RequestDispatcher::onClosed);
+    }
+
+    private RequestDispatcher() {}
+
+    /**
+     * Registers a method to be handled by the library.
+     * @param method The method.
+     */
+    public static void register(RpcRequestMethod<?, ?> method) {
+        METHODS.put(method.getIdentifier(), method);
+    }
+
+    /**
+     * Handles a message received by a connection if it is a request for a method registered with the library.
+     * @param connection The connection that received the message.
+     * @param message The received message.
+     * @return {@code true} if the message was handled and must not be processed further.
+     */
+    public static boolean dispatch(ManagementConnectionHandler connection, JsonElement message) {
+        if(!(message instanceof JsonObject request)) {
+            return false;
+        }
+        CompletableFuture<ByteBuf> response = handle(connection, request);
+        if(response == null) {
+            return false;
+        }
+        Channel channel = ((ManagementConnectionHandlerAccessor)connection).getChannel();
+        response.thenAccept(content -> RpcResponses.write(channel, content));
+        return true;
+    }
+
+    /**
+     * Handles the requests of a batch received by a connection that are requests for methods registered with the library.
+     * <p>
+     * The handled requests go through the same quota, timeout and execution as single requests. Their responses are sent as one array once all of them completed.
+     * Requests for vanilla methods and invalid requests are left to the vanilla processing, which answers them in a separate array.
+     * @param connection The connection that received the batch.
+     * @param batch The received batch.
+     * @return The requests left to the vanilla processing: {@code batch} itself if no request was handled, {@code null} if all requests were handled.
+     */
+    public static JsonArray dispatchBatch(ManagementConnectionHandler connection, JsonArray batch) {
+        List<CompletableFuture<ByteBuf>> responses = new ArrayList<>();
+        JsonArray remaining = new JsonArray();
+        for(JsonElement element : batch) {
+            CompletableFuture<ByteBuf> response = element instanceof JsonObject request ? handle(connection, request) : null;
+            if(response == null) {
+                remaining.add(element);
+            } else {
+                responses.add(response);
+            }
+        }
+        if(responses.isEmpty()) {
+            return batch;
+        }
+        Channel channel = ((ManagementConnectionHandlerAccessor)connection).getChannel();
+        CompletableFuture.allOf(responses.toArray(CompletableFuture[]::new)).thenRun(() -> {
+            List<ByteBuf> contents = new ArrayList<>(responses.size());
+            for(CompletableFuture<ByteBuf> response : responses) {
+                ByteBuf content = response.join();
+                if(content != null) {
+                    contents.add(content);
+                }
+            }
+            RpcResponses.batch(channel, contents);
+        });
+        return remaining.isEmpty() ? null : remaining;
+    }
+
+    private static CompletableFuture<ByteBuf> handle(ManagementConnectionHandler connection, JsonObject request) {
+        if(!(request.get("method") instanceof JsonPrimitive methodName) || !methodName.isString()) {
+            return null;
+        }
+        Identifier identifier = Identifier.tryParse(methodName.getAsString());
+        if(identifier == null) {
+            return null;
+        }
+        JsonElement params = request.get("params");
+        return handle(connection, identifier, request.get("id"), request.get(TIMEOUT_MEMBER), (method, context) -> method.invoke(context, params));
+    }
+
+    /**
+     * Handles a request frame received by a connection without parsing it into a {@code JsonElement} tree, if it is a request for a method registered with the library.
+     * <p>
+     * The parameter is read directly from the frame, which requires the {@code method} member to come before the {@code params} member.
+     * The frame is only read if a quick scan finds the identifier of a registered method, so other requests are not parsed twice.
+     * Frames that can't be read this way, including invalid requests, are left to the regular processing, which parses them and reports any errors.
+     * @param connection The connection that received the frame.
+     * @param frame The content of the received text frame. Not modified.
+     * @return {@code true} if the frame was handled and must not be processed further.
+     */
+    public static boolean dispatch(ManagementConnectionHandler connection, ByteBuf frame) {
+        Identifier peeked = METHODS.isEmpty() ? null : peekMethod(frame);
+        if(peeked == null || !METHODS.containsKey(peeked)) {
+            return false;
+        }
+        Identifier identifier = null;
+        RpcRequestMethod<?, ?> method = null;
+        Object parameter = null;
+        boolean hasParameter = false;
+        JsonElement id = null;
+        JsonElement timeout = null;
+        try(JsonReader reader = new JsonReader(new InputStreamReader(new ByteBufInputStream(frame.duplicate()), StandardCharsets.UTF_8))) {
+            if(reader.peek() != JsonToken.BEGIN_OBJECT) {
+                return false;
+            }
+            reader.beginObject();
+            while(reader.hasNext()) {
+                switch(reader.nextName()) {
+                    case "method" -> {
+                        if(identifier != null || reader.peek() != JsonToken.STRING) {
+                            return false;
+                        }
+                        identifier = Identifier.tryParse(reader.nextString());
+                        method = identifier == null ? null : METHODS.get(identifier);
+                        if(method == null) {
+                            return false;
+                        }
+                    }
+                    case "params" -> {
+                        // The parameter can only be read once the method is known
+                        if(method == null || hasParameter) {
+                            return false;
+                        }
+                        parameter = method.read(reader);
+                        hasParameter = true;
+                    }
+                    case "id" -> id = JSON_ELEMENT.read(reader);
+                    case TIMEOUT_MEMBER -> timeout = JSON_ELEMENT.read(reader);
+                    default -> reader.skipValue();
+                }
+            }
+            reader.endObject();
+            if(reader.peek() != JsonToken.END_DOCUMENT) {
+                return false;
+            }
+        } catch (IOException | RuntimeException e) {
+            return false;
+        }
+        if(method == null || (!hasParameter && method.hasParameter())) {
+            return false;
+        }
+        Object decoded = parameter;
+        CompletableFuture<ByteBuf> response = handle(connection, identifier, id, timeout, (m, context) -> m.invokeDecoded(context, decoded));
+        if(response == null) {
+            return false;
+        }
+        Channel channel = ((ManagementConnectionHandlerAccessor)connection).getChannel();
+        response.thenAccept(content -> RpcResponses.write(channel, content));
+        return true;
+    }
+
+    /**
+     * Finds the value of the first {@code "method"} member in a frame without parsing it.
+     * May find a member nested in another value, which only makes the frame be parsed or left to the regular processing.
+     * @param frame The content of the frame. Not modified.
+     * @return The identifier of the method or {@code null} if it can't be found this way.
+     */
+    private static Identifier peekMethod(ByteBuf frame) {
+        int end = frame.writerIndex();
+        int index = indexOf(frame, METHOD_MEMBER, frame.readerIndex(), end);
+        if(index < 0) {
+            return null;
+        }
+        index = skipWhitespace(frame, index + METHOD_MEMBER.length, end);
+        if(index >= end || frame.getByte(index) != ':') {
+            return null;
+        }
+        index = skipWhitespace(frame, index + 1, end);
+        if(index >= end || frame.getByte(index) != '"') {
+            return null;
+        }
+        int start = index + 1;
+        int close = frame.indexOf(start, end, (byte)'"');
+        // Escaped identifiers are left to the regular processing
+        if(close < 0 || frame.indexOf(start, close, (byte)'\\') >= 0) {
+            return null;
+        }
+        return Identifier.tryParse(frame.toString(start, close - start, StandardCharsets.UTF_8));
+    }
+
+    private static int indexOf(ByteBuf frame, byte[] needle, int from, int end) {
+        for(int i = from; i <= end - needle.length; i++) {
+            int j = 0;
+            while(j < needle.length && frame.getByte(i + j) == needle[j]) {
+                j++;
+            }
+            if(j == needle.length) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int skipWhitespace(ByteBuf frame, int index, int end) {
+        while(index < end) {
+            byte b = frame.getByte(index);
+            if(b != ' ' && b != '\t' && b != '\n' && b != '\r') {
+                break;
+            }
+            index++;
+        }
+        return index;
+    }
+
+    /**
+     * Handles a single request.
+     * @return A future completed with the serialized response, {@code null} if there is none. {@code null} if the request is left to the vanilla processing.
+     */
+    private static CompletableFuture<ByteBuf> handle(ManagementConnectionHandler connection, Identifier identifier, JsonElement id, JsonElement clientTimeout, BiFunction<RpcRequestMethod<?, ?>, RequestContext, CompletableFuture<EncodedResult>> invoker) {
+        RpcRequestMethod<?, ?> method = METHODS.get(identifier);
+        RequestQuota quota = RequestQuota.getConnectionQuota();
+        if(method == null && quota == null) {
+            return null;
+        }
+        ManagementConnectionHandlerAccessor accessor = (ManagementConnectionHandlerAccessor)connection;
+        Channel channel = accessor.getChannel();
+        if(channel == null || accessor.getDispatcher() == null) {
+            return null;
+        }
+
+        RequestEvent event = new RequestEvent();
+        event.begin();
+        RequestContext context = new RequestContext(connection, channel, accessor.getConnectionId(), accessor.getDispatcher(), id, identifier);
+        if(quota != null) {
+            try {
+                quota.acquire(context.getConnectionId());
+            } catch (RpcException e) {
+                commit(event, identifier, context, 0, e.getCode());
+                return CompletableFuture.completedFuture(RpcResponses.error(id, e));
+            }
+            if(method == null) {
+                // Vanilla requests only count towards the rate, their completion can't be observed
+                quota.release(context.getConnectionId());
+                return null;
+            }
+        }
+
+        track(context);
+        if(!channel.isActive()) {
+            context.getCancellation().cancel();
+        }
+
+        CompletableFuture<EncodedResult> response = new CompletableFuture<>();
+        context.getCancellation().onCancel(() -> response.completeExceptionally(new CancellationException("Request was cancelled")));
+        long timeoutNanos = getTimeoutNanos(method, clientTimeout);
+        if(timeoutNanos > 0) {
+            ScheduledFuture<?> timer = TIMEOUTS.schedule(() -> {
+                if(response.completeExceptionally(new RpcException(RpcException.TIMEOUT, "Request timed out"))) {
+                    context.getCancellation().cancel();
+                }
+            }, timeoutNanos, TimeUnit.NANOSECONDS);
+            response.whenComplete((encoded, error) -> timer.cancel(false));
+        }
+
+        CompletableFuture<EncodedResult> result;
+        try {
+            result = invoker.apply(method, context);
+        } catch (RuntimeException e) {
+            result = CompletableFuture.failedFuture(e);
+        }
+        result.whenComplete((encoded, error) -> {
+            if(quota != null) {
+                quota.release(context.getConnectionId());
+            }
+            if(error == null) {
+                response.complete(encoded);
+            } else {
+                response.completeExceptionally(error);
+            }
+        });
+        return response.handle((encoded, error) -> {
+            untrack(context);
+            if(context.getCancellation().isCancelled() && !(error instanceof RpcException)) {
+                // Cancelled because the connection was closed, nobody is waiting for a response
+                commit(event, identifier, context, 0, RpcException.INTERNAL_ERROR);
+                return null;
+            }
+            if(error == null) {
+                commit(event, identifier, context, encoded.size(), 0);
+                return RpcResponses.result(id, encoded);
+            }
+            RpcException exception = toRpcException(identifier, error);
+            commit(event, identifier, context, 0, exception.getCode());
+            return RpcResponses.error(id, exception);
+        });
+    }
+
+    private static long getTimeoutNanos(RpcRequestMethod<?, ?> method, JsonElement requested) {
+        long timeout = method.getTimeout() == null ? 0 : method.getTimeout().toNanos();
+        if(requested instanceof JsonPrimitive primitive && primitive.isNumber()) {
+            long clientTimeout = TimeUnit.MILLISECONDS.toNanos(Math.max(1, primitive.getAsLong()));
+            timeout = timeout == 0 ? clientTimeout : Math.min(timeout, clientTimeout);
+        }
+        return timeout;
+    }
+
+    private static void commit(RequestEvent event, Identifier method, RequestContext context, long responseSize, int errorCode) {
+        if(event.shouldCommit()) {
+            event.method = method.toString();
+            event.connection = String.valueOf(context.getConnectionId());
+            event.responseSize = responseSize;
+            event.errorCode = errorCode;
+            event.commit();
+        }
+    }
+
+    private static void track(RequestContext context) {
+        ManagementConnectionId connectionId = context.getConnectionId();
+        if(connectionId == null) {
+            return;
+        }
+        if(ManagementConnections.get(connectionId) == null) {
+            // Already closed, the close listener won't run again
+            context.getCancellation().cancel();
+            return;
+        }
+        IN_FLIGHT.compute(connectionId, (key, requests) -> {
+            Set<RequestContext> set = requests == null ? ConcurrentHashMap.newKeySet() : requests;
+            set.add(context);
+            return set;
+        });
+        if(ManagementConnections.get(connectionId) == null) {
+            // Closed in the meantime, the close listener may have run before the request was added
+            untrack(context);
+            context.getCancellation().cancel();
+        }
+    }
+
+    private static void untrack(RequestContext context) {
+        if(context.getConnectionId() != null) {
+            IN_FLIGHT.computeIfPresent(context.getConnectionId(), (key, requests) -> {
+                requests.remove(context);
+                return requests.isEmpty() ? null : requests;
+            });
+        }
+    }
+
+    private static void onClosed(ConnectionState state) {
+        Set<RequestContext> inFlight = IN_FLIGHT.remove(state.getId());
+        if(inFlight != null) {
+            for(RequestContext context : inFlight) {
+                context.getCancellation().cancel();
+            }
+        }
+    }
+
+    private static RpcException toRpcException(Identifier method, Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if(cause instanceof RpcException rpcException) {
+            return rpcException;
+        }
+        ServerManagementExtender.LOGGER.warn("Failed to handle request {}", method, cause);
+        return new RpcException(RpcException.INTERNAL_ERROR, cause.getMessage() == null ? cause.getClass().getSimpleName() : cause.getMessage(), cause);
+    }
+}
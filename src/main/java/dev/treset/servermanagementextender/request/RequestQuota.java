@@ -0,0 +1,159 @@
+package dev.treset.servermanagementextender.request;
+
+import dev.treset.servermanagementextender.connection.ConnectionState;
+import dev.treset.servermanagementextender.connection.ManagementConnections;
+import net.minecraft.server.dedicated.management.network.ManagementConnectionId;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Limits the rate and concurrency of requests of each connection.
+ * <p>
+ * The rate is limited by a token bucket stored as the theoretical arrival time of the next request in a single {@link AtomicLong} per connection,
+ * concurrency by an {@link AtomicInteger} per connection, so checking the quota is lock-free.
+ * Requests exceeding the quota are answered with a {@link RpcException#QUOTA_EXCEEDED} error without running the handler.
+ */
+public final class RequestQuota {
+    // Weak, so replaced quotas can be collected
+    private static final Set<RequestQuota> QUOTAS = Collections.newSetFromMap(new WeakHashMap<>());
+    private static volatile RequestQuota connectionQuota;
+
+    static {
+        ManagementConnections.addCloseListener(RequestQuota::onClosed);
+    }
+
+    private final long intervalNanos;
+    private final long burstNanos;
+    private final int maxConcurrent;
+    private final Map<ManagementConnectionId, State> states = new ConcurrentHashMap<>();
+    private final LongAdder rejected = new LongAdder();
+
+    /**
+     * @param requestsPerSecond The sustained amount of requests allowed per second. {@code 0} for no rate limit.
+     * @param burst The amount of requests allowed at once.
+     * @param maxConcurrent The maximum amount of requests handled at the same time. {@code 0} for no concurrency limit.
+     */
+    public RequestQuota(double requestsPerSecond, int burst, int maxConcurrent) {
+        if(requestsPerSecond < 0 || (requestsPerSecond > 0 && burst <= 0) || maxConcurrent < 0) {
+            throw new IllegalArgumentException("Invalid quota: " + requestsPerSecond + " per second, burst " + burst + ", " + maxConcurrent + " concurrent");
+        }
+        this.intervalNanos = requestsPerSecond == 0 ? 0 : Math.max(1, (long)(TimeUnit.SECONDS.toNanos(1) / requestsPerSecond));
+        this.burstNanos = intervalNanos * burst;
+        this.maxConcurrent = maxConcurrent;
+        synchronized(QUOTAS) {
+            QUOTAS.add(this);
+        }
+    }
+
+    /**
+     * Sets the quota applied to all requests of a connection, including requests to vanilla methods.
+     * The concurrency limit only applies to requests handled by the library.
+     * @param quota The quota. {@code null} to remove the quota.
+     */
+    public static void setConnectionQuota(RequestQuota quota) {
+        connectionQuota = quota;
+    }
+
+    /**
+     * @return The quota applied to all requests of a connection or {@code null} if there is none.
+     */
+    public static RequestQuota getConnectionQuota() {
+        return connectionQuota;
+    }
+
+    /**
+     * Acquires a request of a connection.
+     * If the request is allowed and a concurrency limit is set, {@link #release(ManagementConnectionId)} must be called when the request completes.
+     * @param connection The connection sending the request.
+     * @throws RpcException If the request exceeds the quota.
+     */
+    public void acquire(ManagementConnectionId connection) {
+        if(connection == null) {
+            return;
+        }
+        State state = states.get(connection);
+        if(state == null) {
+            if(ManagementConnections.get(connection) == null) {
+                // The connection is closed, nobody receives the response
+                return;
+            }
+            state = states.computeIfAbsent(connection, id -> new State());
+            if(ManagementConnections.get(connection) == null) {
+                // Closed in the meantime, the close listener may have run before the state was added
+                states.remove(connection, state);
+                return;
+            }
+        }
+        if(maxConcurrent > 0 && state.inFlight.incrementAndGet() > maxConcurrent) {
+            state.inFlight.decrementAndGet();
+            rejected.increment();
+            throw new RpcException(RpcException.QUOTA_EXCEEDED, "Too many concurrent requests");
+        }
+        if(intervalNanos > 0 && !state.tryAcquire(intervalNanos, burstNanos)) {
+            if(maxConcurrent > 0) {
+                state.inFlight.decrementAndGet();
+            }
+            rejected.increment();
+            throw new RpcException(RpcException.QUOTA_EXCEEDED, "Request rate exceeded");
+        }
+    }
+
+    /**
+     * Releases a request acquired using {@link #acquire(ManagementConnectionId)}.
+     * @param connection The connection that sent the request.
+     */
+    public void release(ManagementConnectionId connection) {
+        if(connection == null || maxConcurrent == 0) {
+            return;
+        }
+        State state = states.get(connection);
+        if(state != null) {
+            state.inFlight.decrementAndGet();
+        }
+    }
+
+    private static void onClosed(ConnectionState state) {
+        List<RequestQuota> quotas;
+        synchronized(QUOTAS) {
+            quotas = List.copyOf(QUOTAS);
+        }
+        for(RequestQuota quota : quotas) {
+            quota.states.remove(state.getId());
+        }
+    }
+
+    /**
+     * @return The amount of requests rejected because they exceeded the quota.
+     */
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    private static final class State {
+        private final AtomicLong nextArrival = new AtomicLong(System.nanoTime());
+        private final AtomicInteger inFlight = new AtomicInteger();
+
+        private boolean tryAcquire(long intervalNanos, long burstNanos) {
+            long now = System.nanoTime();
+            while(true) {
+                long arrival = nextArrival.get();
+                long next = Math.max(arrival, now) + intervalNanos;
+                if(next - now > burstNanos) {
+                    return false;
+                }
+                if(nextArrival.compareAndSet(arrival, next)) {
+                    return true;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package dev.treset.servermanagementextender.request;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * Caches the encoded response of a parameterless request method for a fixed time and serves it to all connections.
+ * <p>
+ * Concurrent requests while the response is loaded share a single handler invocation, which runs in a detached context
+ * and is only cancelled once all waiting requests have timed out or been cancelled.
+ * If a stale period is configured, expired responses are still served during that period while they are refreshed on a background virtual thread.
+ */
+public final class ResponseCache implements ResultCache<Object> {
+    private static final Executor REFRESH = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("Server Management Cache Refresh ", 0).factory());
+
+    private final long ttlNanos;
+    private final long staleNanos;
+    private final AtomicLong generation = new AtomicLong();
+    private volatile Entry entry;
+    private final AtomicReference<SharedLoad> loading = new AtomicReference<>();
+
+    private ResponseCache(long ttlNanos, long staleNanos) {
+        this.ttlNanos = ttlNanos;
+        this.staleNanos = staleNanos;
+    }
+
+    /**
+     * Creates a cache serving responses until they expire.
+     * @param ttl How long a response is served after it was created.
+     * @return The cache.
+     */
+    public static ResponseCache expireAfter(Duration ttl) {
+        return expireAfter(ttl, Duration.ZERO);
+    }
+
+    /**
+     * Creates a cache serving responses until they expire and refreshing expired responses in the background.
+     * @param ttl How long a response is served after it was created.
+     * @param staleWhileRevalidate How long an expired response is still served while it is refreshed.
+     * @return The cache.
+     */
+    public static ResponseCache expireAfter(Duration ttl, Duration staleWhileRevalidate) {
+        if(ttl.isNegative() || ttl.isZero()) {
+            throw new IllegalArgumentException("TTL must be positive: " + ttl);
+        }
+        if(staleWhileRevalidate.isNegative()) {
+            throw new IllegalArgumentException("Stale period must not be negative: " + staleWhileRevalidate);
+        }
+        return new ResponseCache(ttl.toNanos(), staleWhileRevalidate.toNanos());
+    }
+
+    /**
+     * Discards the cached response. The next request runs the handler again, even if a load started before is still running.
+     */
+    public void invalidate() {
+        synchronized(this) {
+            generation.incrementAndGet();
+            entry = null;
+        }
+        loading.set(null);
+    }
+
+    @Override
+    public CompletableFuture<EncodedResult> get(Object parameter, RequestContext context, Function<RequestContext, CompletableFuture<EncodedResult>> loader) {
+        Entry current = entry;
+        if(current != null) {
+            long age = System.nanoTime() - current.createdAt();
+            if(age < ttlNanos) {
+                return CompletableFuture.completedFuture(current.result());
+            }
+            if(age < ttlNanos + staleNanos) {
+                refresh(context, loader);
+                return CompletableFuture.completedFuture(current.result());
+            }
+        }
+        return load(context, loader);
+    }
+
+    private CompletableFuture<EncodedResult> load(RequestContext context, Function<RequestContext, CompletableFuture<EncodedResult>> loader) {
+        while(true) {
+            SharedLoad running = loading.get();
+            if(running != null) {
+                CompletableFuture<EncodedResult> joined = running.join(context);
+                if(joined != null) {
+                    return joined;
+                }
+            }
+            // No load is running or all requests waiting for it were cancelled
+            SharedLoad created = new SharedLoad(context);
+            if(loading.compareAndSet(running, created)) {
+                CompletableFuture<EncodedResult> joined = created.join(context);
+                start(created, loader, generation.get());
+                return joined;
+            }
+        }
+    }
+
+    private void refresh(RequestContext context, Function<RequestContext, CompletableFuture<EncodedResult>> loader) {
+        SharedLoad created = new SharedLoad(context);
+        if(loading.compareAndSet(null, created)) {
+            long loadGeneration = generation.get();
+            // Nobody waits for the refresh, run it off the requesting thread
+            REFRESH.execute(() -> start(created, loader, loadGeneration));
+        }
+    }
+
+    private void start(SharedLoad load, Function<RequestContext, CompletableFuture<EncodedResult>> loader, long loadGeneration) {
+        load.start(loader).whenComplete((value, error) -> {
+            if(error == null) {
+                synchronized(this) {
+                    // Not stored if the cache was invalidated during the load
+                    if(generation.get() == loadGeneration) {
+                        entry = new Entry(value, System.nanoTime());
+                    }
+                }
+            }
+            loading.compareAndSet(load, null);
+        });
+    }
+
+    private record Entry(EncodedResult result, long createdAt) {}
+}
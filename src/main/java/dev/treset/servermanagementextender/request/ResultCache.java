@@ -0,0 +1,20 @@
+package dev.treset.servermanagementextender.request;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * A stage between decoding the parameter of a request and running its handler that may answer the request without running the handler.
+ * @param <T> The type of object in the request parameter.
+ */
+@FunctionalInterface
+public interface ResultCache<T> {
+    /**
+     * @param parameter The decoded request parameter. {@code null} for parameterless methods.
+     * @param context The request.
+     * @param loader Runs the handler in the given context and encodes its result. Must be called at most once.
+     *               Results shared between requests must be loaded in a {@link RequestContext#detach() detached context}.
+     * @return A future completed with the encoded result.
+     */
+    CompletableFuture<EncodedResult> get(T parameter, RequestContext context, Function<RequestContext, CompletableFuture<EncodedResult>> loader);
+}
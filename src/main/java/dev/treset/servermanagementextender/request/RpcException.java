@@ -0,0 +1,37 @@
+package dev.treset.servermanagementextender.request;
+
+/**
+ * An error that is sent to the client as a JSON-RPC error response.
+ * Can be thrown by request handlers or used to complete their futures exceptionally to control the error code and message.
+ */
+public class RpcException extends RuntimeException {
+    public static final int INVALID_PARAMS = -32602;
+    public static final int INTERNAL_ERROR = -32603;
+    public static final int QUOTA_EXCEEDED = -32000;
+    public static final int TIMEOUT = -32001;
+
+    private final int code;
+
+    /**
+     * @param code The JSON-RPC error code.
+     * @param message The error message sent to the client.
+     */
+    public RpcException(int code, String message) {
+        super(message);
+        this.code = code;
+    }
+
+    /**
+     * @param code The JSON-RPC error code.
+     * @param message The error message sent to the client.
+     * @param cause The cause of the error. Not sent to the client.
+     */
+    public RpcException(int code, String message, Throwable cause) {
+        super(message, cause);
+        this.code = code;
+    }
+
+    public int getCode() {
+        return code;
+    }
+}
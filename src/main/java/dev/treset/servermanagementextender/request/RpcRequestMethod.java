@@ -0,0 +1,251 @@
+package dev.treset.servermanagementextender.request;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.mojang.serialization.Codec;
+import com.mojang.serialization.JsonOps;
+import dev.treset.servermanagementextender.codec.JsonStreamDecoder;
+import dev.treset.servermanagementextender.codec.JsonStreamDecoders;
+import dev.treset.servermanagementextender.metrics.CodecEvent;
+import dev.treset.servermanagementextender.metrics.MethodMetrics;
+import dev.treset.servermanagementextender.metrics.RequestMetrics;
+import net.minecraft.util.Identifier;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiFunction;
+import java.util.function.Supplier;
+
+/**
+ * A request method handled by the library. Decodes the parameter, runs the handler and encodes the result once the handler completes.
+ * Result caches may answer a request without running the handler.
+ * The durations of decoding, running the handler and encoding are recorded in the {@link RequestMetrics} of the method.
+ * Decoding and encoding are also recorded as {@link CodecEvent}s if the event is enabled in a flight recording.
+ * <p>
+ * The parameter can be decoded from a parsed {@code JsonElement} or read directly from the request using the stream decoder of its schema.
+ * @param <T> The type of object in the request parameter. {@link Void} for parameterless methods.
+ * @param <R> The type of object contained in the response.
+ */
+public final class RpcRequestMethod<T, R> {
+    private final Identifier identifier;
+    private final String parameterName;
+    private final Codec<T> parameterCodec;
+    private final JsonStreamDecoder<T> parameterDecoder;
+    private final Codec<R> codec;
+    private final BiFunction<RequestContext, T, CompletableFuture<R>> handler;
+    private final List<ResultCache<? super T>> caches;
+    private final RequestQuota quota;
+    private final Duration timeout;
+    private final MethodMetrics metrics;
+
+    /**
+     * @param identifier The identifier of the method.
+     * @param parameterName The name of the parameter. {@code null} if the method doesn't take a parameter.
+     * @param parameterCodec The codec of the parameter. {@code null} if the method doesn't take a parameter.
+     * @param codec The codec of the response.
+     * @param handler The function handling a request, returning a future completed with the response content.
+     * @param caches The caches a request goes through before the handler is run, outermost first.
+     * @param quota The quota checked before a request is handled. May be {@code null}.
+     * @param timeout The time after which a request is cancelled and answered with a timeout error. May be {@code null}.
+     */
+    public RpcRequestMethod(Identifier identifier, String parameterName, Codec<T> parameterCodec, Codec<R> codec, BiFunction<RequestContext, T, CompletableFuture<R>> handler, List<ResultCache<? super T>> caches, RequestQuota quota, Duration timeout) {
+        this.identifier = identifier;
+        this.parameterName = parameterName;
+        this.parameterCodec = parameterCodec;
+        this.parameterDecoder = parameterCodec == null ? null : JsonStreamDecoders.get(parameterCodec);
+        this.codec = codec;
+        this.handler = handler;
+        this.caches = List.copyOf(caches);
+        this.quota = quota;
+        this.timeout = timeout;
+        this.metrics = RequestMetrics.get(identifier);
+    }
+
+    public Identifier getIdentifier() {
+        return identifier;
+    }
+
+    /**
+     * @return The default timeout of requests or {@code null} if requests don't time out.
+     */
+    public Duration getTimeout() {
+        return timeout;
+    }
+
+    /**
+     * Handles a request.
+     * @param context The request.
+     * @param params The {@code params} of the request. May be {@code null}.
+     * @return A future completed with the encoded result. Completed exceptionally with an {@link RpcException} if the request is invalid or exceeds the quota.
+     */
+    public CompletableFuture<EncodedResult> invoke(RequestContext context, JsonElement params) {
+        return invoke(context, () -> decode(params));
+    }
+
+    /**
+     * Handles a request whose parameter has already been read using {@link #read(JsonReader)}.
+     * @param context The request.
+     * @param parameter The parameter returned by {@link #read(JsonReader)}.
+     * @return A future completed with the encoded result. Completed exceptionally with an {@link RpcException} if the request exceeds the quota.
+     */
+    @SuppressWarnings("unchecked")
+    public CompletableFuture<EncodedResult> invokeDecoded(RequestContext context, Object parameter) {
+        return invoke(context, () -> (T)parameter);
+    }
+
+    /**
+     * @return {@code true} if requests of this method must contain a parameter.
+     */
+    public boolean hasParameter() {
+        return parameterCodec != null;
+    }
+
+    /**
+     * Reads the parameter from the {@code params} of a request without building a {@code JsonElement} tree.
+     * Properties other than the parameter and additional array elements are skipped.
+     * @param reader The reader positioned at the {@code params} of the request. Positioned after them once this returns.
+     * @return The parameter. {@code null} if the method doesn't take a parameter.
+     * @throws IOException If the reader fails or the JSON is malformed.
+     * @throws IllegalStateException If the parameter is missing or doesn't match its schema. The request must then be decoded using {@link #invoke(RequestContext, JsonElement)} to get the error.
+     */
+    public Object read(JsonReader reader) throws IOException, IllegalStateException {
+        if(parameterCodec == null) {
+            reader.skipValue();
+            return null;
+        }
+        long start = System.nanoTime();
+        CodecEvent event = new CodecEvent();
+        event.begin();
+        T parameter = null;
+        boolean found = false;
+        if(reader.peek() == JsonToken.BEGIN_ARRAY) {
+            reader.beginArray();
+            if(reader.hasNext()) {
+                parameter = parameterDecoder.read(reader);
+                found = true;
+            }
+            while(reader.hasNext()) {
+                reader.skipValue();
+            }
+            reader.endArray();
+        } else if(reader.peek() == JsonToken.BEGIN_OBJECT) {
+            reader.beginObject();
+            while(reader.hasNext()) {
+                if(!reader.nextName().equals(parameterName)) {
+                    reader.skipValue();
+                } else if(found) {
+                    // The parsed request would contain the last duplicate, leave it to the codec
+                    throw new IllegalStateException("Duplicate parameter: " + parameterName);
+                } else {
+                    parameter = parameterDecoder.read(reader);
+                    found = true;
+                }
+            }
+            reader.endObject();
+        }
+        if(!found) {
+            throw new IllegalStateException("Missing parameter: " + parameterName);
+        }
+        commit(event, CodecEvent.DECODE, -1);
+        metrics.recordDecode(System.nanoTime() - start);
+        return parameter;
+    }
+
+    private CompletableFuture<EncodedResult> invoke(RequestContext context, Supplier<T> decoder) {
+        metrics.recordCall();
+        boolean acquired = false;
+        CompletableFuture<EncodedResult> result;
+        try {
+            if(quota != null) {
+                quota.acquire(context.getConnectionId());
+                acquired = true;
+            }
+            T parameter = decoder.get();
+            result = load(context, parameter, 0);
+        } catch (RuntimeException e) {
+            if(acquired) {
+                quota.release(context.getConnectionId());
+            }
+            metrics.recordError();
+            throw e;
+        }
+        return result.whenComplete((encoded, error) -> {
+            if(quota != null) {
+                quota.release(context.getConnectionId());
+            }
+            if(error != null) {
+                metrics.recordError();
+            }
+        });
+    }
+
+    private CompletableFuture<EncodedResult> load(RequestContext context, T parameter, int stage) {
+        if(stage < caches.size()) {
+            return caches.get(stage).get(parameter, context, loadContext -> load(loadContext, parameter, stage + 1));
+        }
+        long start = System.nanoTime();
+        CompletableFuture<R> result = handler.apply(context, parameter);
+        if(result == null) {
+            throw new RpcException(RpcException.INTERNAL_ERROR, "Handler of " + identifier + " returned no result");
+        }
+        return result.thenApply(value -> {
+            long encodeStart = System.nanoTime();
+            metrics.recordHandler(encodeStart - start);
+            EncodedResult encoded = encode(value);
+            metrics.recordEncode(System.nanoTime() - encodeStart);
+            return encoded;
+        });
+    }
+
+    private T decode(JsonElement params) {
+        if(parameterCodec == null) {
+            return null;
+        }
+        JsonElement parameter = null;
+        if(params instanceof JsonArray array && !array.isEmpty()) {
+            parameter = array.get(0);
+        } else if(params instanceof JsonObject object) {
+            parameter = object.get(parameterName);
+        }
+        if(parameter == null) {
+            throw new RpcException(RpcException.INVALID_PARAMS, "Missing parameter: " + parameterName);
+        }
+        long start = System.nanoTime();
+        CodecEvent event = new CodecEvent();
+        event.begin();
+        T decoded = parameterCodec.parse(JsonOps.INSTANCE, parameter)
+                .getOrThrow(error -> new RpcException(RpcException.INVALID_PARAMS, "Invalid parameter " + parameterName + ": " + error));
+        commit(event, CodecEvent.DECODE, -1);
+        metrics.recordDecode(System.nanoTime() - start);
+        return decoded;
+    }
+
+    private EncodedResult encode(R result) {
+        CodecEvent event = new CodecEvent();
+        event.begin();
+        EncodedResult encoded;
+        try {
+            encoded = EncodedResult.of(codec, result);
+        } catch (RuntimeException e) {
+            // Encode through the codec to report the error of the codec
+            encoded = EncodedResult.of(codec.encodeStart(JsonOps.INSTANCE, result)
+                    .getOrThrow(error -> new RpcException(RpcException.INTERNAL_ERROR, "Failed to encode result of " + identifier + ": " + error)));
+        }
+        commit(event, CodecEvent.ENCODE, encoded.size());
+        return encoded;
+    }
+
+    private void commit(CodecEvent event, String operation, long size) {
+        if(event.shouldCommit()) {
+            event.method = identifier.toString();
+            event.operation = operation;
+            event.size = size;
+            event.commit();
+        }
+    }
+}
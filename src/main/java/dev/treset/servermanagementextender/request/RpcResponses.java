@@ -0,0 +1,109 @@
+package dev.treset.servermanagementextender.request;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import dev.treset.servermanagementextender.metrics.TransportMetrics;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Writes JSON-RPC responses to a connection.
+ */
+public final class RpcResponses {
+    private static final byte[] SUFFIX = {'}'};
+    private static final byte[] BATCH_START = {'['};
+    private static final byte[] SEPARATOR = {','};
+    private static final byte[] BATCH_END = {']'};
+
+    private RpcResponses() {}
+
+    /**
+     * Writes a successful response.
+     * @param context The request to respond to. Nothing is written if the request has no id.
+     * @param result The encoded result. Written without copying it.
+     */
+    public static void result(RequestContext context, EncodedResult result) {
+        write(context.getChannel(), result(context.getId(), result));
+    }
+
+    /**
+     * Writes an error response.
+     * @param context The request to respond to. Nothing is written if the request has no id.
+     * @param error The error to send.
+     */
+    public static void error(RequestContext context, RpcException error) {
+        write(context.getChannel(), error(context.getId(), error));
+    }
+
+    /**
+     * @param id The id of the request.
+     * @param result The encoded result. Referenced without copying it.
+     * @return The serialized response or {@code null} if the request has no id.
+     */
+    static ByteBuf result(JsonElement id, EncodedResult result) {
+        if(id == null) {
+            return null;
+        }
+        byte[] prefix = ("{\"jsonrpc\":\"2.0\",\"id\":" + id + ",\"result\":").getBytes(StandardCharsets.UTF_8);
+        return Unpooled.wrappedBuffer(Unpooled.wrappedBuffer(prefix), result.content(), Unpooled.wrappedBuffer(SUFFIX));
+    }
+
+    /**
+     * @param id The id of the request.
+     * @param error The error to send.
+     * @return The serialized response or {@code null} if the request has no id.
+     */
+    static ByteBuf error(JsonElement id, RpcException error) {
+        if(id == null) {
+            return null;
+        }
+        JsonObject content = new JsonObject();
+        content.addProperty("code", error.getCode());
+        content.addProperty("message", error.getMessage());
+
+        JsonObject json = new JsonObject();
+        json.addProperty("jsonrpc", "2.0");
+        json.add("id", id);
+        json.add("error", content);
+        return Unpooled.wrappedBuffer(json.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Writes the responses to the requests of a batch as a single array. Nothing is written if there are no responses.
+     * @param channel The channel of the connection.
+     * @param responses The serialized responses.
+     */
+    static void batch(Channel channel, List<ByteBuf> responses) {
+        if(responses.isEmpty()) {
+            return;
+        }
+        ByteBuf[] parts = new ByteBuf[responses.size() * 2 + 1];
+        parts[0] = Unpooled.wrappedBuffer(BATCH_START);
+        for(int i = 0; i < responses.size(); i++) {
+            parts[i * 2 + 1] = responses.get(i);
+            parts[i * 2 + 2] = Unpooled.wrappedBuffer(i == responses.size() - 1 ? BATCH_END : SEPARATOR);
+        }
+        write(channel, Unpooled.wrappedBuffer(parts));
+    }
+
+    /**
+     * @param channel The channel of the connection.
+     * @param content The serialized response. Nothing is written if {@code null}.
+     */
+    static void write(Channel channel, ByteBuf content) {
+        if(content == null) {
+            return;
+        }
+        if(channel.isActive()) {
+            TransportMetrics.recordResponse(content.readableBytes());
+            channel.writeAndFlush(new TextWebSocketFrame(content));
+        } else {
+            content.release();
+        }
+    }
+}
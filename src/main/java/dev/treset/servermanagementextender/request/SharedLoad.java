@@ -0,0 +1,77 @@
+package dev.treset.servermanagementextender.request;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * A handler invocation whose result is shared between multiple requests.
+ * <p>
+ * The handler runs in a {@link RequestContext#detach() detached context} with its own cancellation token, so the timeout or cancellation of a single waiting request doesn't affect the others.
+ * The invocation is only cancelled once every request waiting for it has been cancelled. Invocations nobody waits for, like background refreshes, are never cancelled.
+ */
+final class SharedLoad {
+    private final RequestContext context;
+    private final CompletableFuture<EncodedResult> result = new CompletableFuture<>();
+    private int waiters;
+    private boolean abandoned;
+
+    /**
+     * @param context The request starting the invocation. Only its method and dispatcher are used.
+     */
+    SharedLoad(RequestContext context) {
+        this.context = context.detach();
+    }
+
+    /**
+     * Adds a request waiting for the result. The request stops waiting once its cancellation token is cancelled.
+     * @param waiter The waiting request.
+     * @return A future completed with the result or {@code null} if the invocation was already abandoned by all its waiters.
+     */
+    CompletableFuture<EncodedResult> join(RequestContext waiter) {
+        synchronized(this) {
+            if(abandoned) {
+                return null;
+            }
+            waiters++;
+        }
+        waiter.getCancellation().onCancel(this::leave);
+        return result;
+    }
+
+    /**
+     * Runs the handler in the detached context. Must be called at most once.
+     * @param loader Runs the handler and encodes its result.
+     * @return A future completed with the result.
+     */
+    CompletableFuture<EncodedResult> start(Function<RequestContext, CompletableFuture<EncodedResult>> loader) {
+        if(context.getCancellation().isCancelled()) {
+            return result;
+        }
+        CompletableFuture<EncodedResult> loaded;
+        try {
+            loaded = loader.apply(context);
+        } catch (RuntimeException e) {
+            loaded = CompletableFuture.failedFuture(e);
+        }
+        loaded.whenComplete((value, error) -> {
+            if(error == null) {
+                result.complete(value);
+            } else {
+                result.completeExceptionally(error);
+            }
+        });
+        return result;
+    }
+
+    private void leave() {
+        synchronized(this) {
+            if(--waiters > 0 || result.isDone()) {
+                return;
+            }
+            abandoned = true;
+        }
+        context.getCancellation().cancel();
+        result.completeExceptionally(new CancellationException("Request was cancelled"));
+    }
+}
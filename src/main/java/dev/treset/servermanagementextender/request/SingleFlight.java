@@ -0,0 +1,53 @@
+package dev.treset.servermanagementextender.request;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Collapses concurrent requests with equal parameters into a single handler invocation whose result is sent to all waiting requests.
+ * <p>
+ * Only requests arriving while the handler is running are collapsed, the result is not kept afterwards.
+ * The handler runs in a detached context without a connection. Timeouts and cancellation only apply to each waiting request,
+ * the invocation itself is cancelled once all waiting requests have been cancelled.
+ * @param <T> The type of object in the request parameter. Must implement {@code equals} and {@code hashCode}.
+ */
+public final class SingleFlight<T> implements ResultCache<T> {
+    private static final Object NO_PARAMETER = new Object();
+
+    private final Map<Object, SharedLoad> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder collapsed = new LongAdder();
+
+    @Override
+    public CompletableFuture<EncodedResult> get(T parameter, RequestContext context, Function<RequestContext, CompletableFuture<EncodedResult>> loader) {
+        Object key = Objects.requireNonNullElse(parameter, NO_PARAMETER);
+        while(true) {
+            SharedLoad created = new SharedLoad(context);
+            SharedLoad running = inFlight.putIfAbsent(key, created);
+            if(running != null) {
+                CompletableFuture<EncodedResult> joined = running.join(context);
+                if(joined != null) {
+                    collapsed.increment();
+                    return joined;
+                }
+                // All requests waiting for the running invocation were cancelled
+                inFlight.remove(key, running);
+                continue;
+            }
+
+            CompletableFuture<EncodedResult> joined = created.join(context);
+            created.start(loader).whenComplete((value, error) -> inFlight.remove(key, created));
+            return joined;
+        }
+    }
+
+    /**
+     * @return The amount of requests that were answered by the handler invocation of another request.
+     */
+    public long getCollapsedCount() {
+        return collapsed.sum();
+    }
+}
@@ -0,0 +1,51 @@
+package dev.treset.servermanagementextender.request;
+
+import dev.treset.servermanagementextender.ServerManagementExtender;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelPipeline;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.WebSocketServerProtocolHandler;
+import net.minecraft.server.dedicated.management.network.ManagementConnectionHandler;
+
+/**
+ * Hands received text frames to {@link RequestDispatcher#dispatch(ManagementConnectionHandler, io.netty.buffer.ByteBuf)} before they are parsed into {@code JsonElement}s.
+ * Frames that aren't handled are passed on unchanged.
+ */
+public final class StreamingRequestHandler extends ChannelInboundHandlerAdapter {
+    private static final String NAME = "server_management_extender_streaming_requests";
+
+    private final ManagementConnectionHandler connection;
+
+    private StreamingRequestHandler(ManagementConnectionHandler connection) {
+        this.connection = connection;
+    }
+
+    /**
+     * Adds the handler to the pipeline of a connection, right after the WebSocket protocol handler and so in front of the handler decoding frames into JSON.
+     * If the pipeline has no WebSocket protocol handler the handler isn't added and all requests are parsed into {@code JsonElement}s.
+     * @param context The context of the connection handler in its pipeline.
+     * @param connection The connection.
+     */
+    public static void install(ChannelHandlerContext context, ManagementConnectionHandler connection) {
+        ChannelPipeline pipeline = context.pipeline();
+        if(pipeline.get(NAME) != null) {
+            return;
+        }
+        ChannelHandlerContext protocol = pipeline.context(WebSocketServerProtocolHandler.class);
+        if(protocol == null) {
+            ServerManagementExtender.LOGGER.debug("No WebSocket protocol handler in the pipeline of {}, requests aren't read while streaming", context.channel().remoteAddress());
+            return;
+        }
+        pipeline.addAfter(protocol.name(), NAME, new StreamingRequestHandler(connection));
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext context, Object message) {
+        if(message instanceof TextWebSocketFrame frame && frame.isFinalFragment() && RequestDispatcher.dispatch(connection, frame.content())) {
+            frame.release();
+            return;
+        }
+        context.fireChannelRead(message);
+    }
+}
@@ -0,0 +1,83 @@
+package dev.treset.servermanagementextender.request;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.function.Supplier;
+
+/**
+ * Runs blocking request handlers on virtual threads, so waiting handlers don't occupy platform threads.
+ * <p>
+ * At most the configured amount of handlers run at the same time; further handlers wait on their virtual thread until a running one completes.
+ */
+public final class VirtualThreadExecutor {
+    private static final ThreadFactory FACTORY = Thread.ofVirtual().name("Server Management Request ", 0).factory();
+
+    private final Semaphore permits;
+    private final int maxConcurrency;
+
+    /**
+     * @param maxConcurrency The maximum amount of handlers running at the same time.
+     */
+    public VirtualThreadExecutor(int maxConcurrency) {
+        if(maxConcurrency <= 0) {
+            throw new IllegalArgumentException("Max concurrency must be positive: " + maxConcurrency);
+        }
+        this.permits = new Semaphore(maxConcurrency);
+        this.maxConcurrency = maxConcurrency;
+    }
+
+    /**
+     * Runs a task on a new virtual thread.
+     * @param task The task.
+     * @return A future completed with the result of the task.
+     * @param <R> The type of the result.
+     */
+    public <R> CompletableFuture<R> submit(Supplier<R> task) {
+        return submit(task, CancellationToken.NONE);
+    }
+
+    /**
+     * Runs a task on a new virtual thread. The thread is interrupted when the token is cancelled.
+     * @param task The task.
+     * @param cancellation The cancellation token of the request.
+     * @return A future completed with the result of the task.
+     * @param <R> The type of the result.
+     */
+    public <R> CompletableFuture<R> submit(Supplier<R> task, CancellationToken cancellation) {
+        CompletableFuture<R> future = new CompletableFuture<>();
+        Thread thread = FACTORY.newThread(() -> {
+            try {
+                cancellation.throwIfCancelled();
+                permits.acquire();
+            } catch (InterruptedException | RuntimeException e) {
+                future.completeExceptionally(e);
+                return;
+            }
+            try {
+                future.complete(task.get());
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            } finally {
+                permits.release();
+            }
+        });
+        cancellation.onCancel(thread::interrupt);
+        thread.start();
+        return future;
+    }
+
+    /**
+     * @return The amount of handlers currently running.
+     */
+    public int getActiveCount() {
+        return maxConcurrency - permits.availablePermits();
+    }
+
+    /**
+     * @return The amount of handlers waiting for a running handler to complete.
+     */
+    public int getWaitingCount() {
+        return permits.getQueueLength();
+    }
+}
@@ -1,6 +1,10 @@
 package dev.treset.servermanagementextender.wrapper;
 
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
 import com.mojang.serialization.Codec;
+import dev.treset.servermanagementextender.codec.JsonStreamDecoders;
+import dev.treset.servermanagementextender.codec.JsonStreamEncoders;
 import dev.treset.servermanagementextender.wrapper.enumeration.EnumTransformer;
 import net.minecraft.server.dedicated.management.RpcKickReason;
 import net.minecraft.server.dedicated.management.RpcPlayer;
@@ -11,6 +15,7 @@ import net.minecraft.util.Identifier;
 import net.minecraft.util.StringIdentifiable;
 import net.minecraft.util.dynamic.Codecs;
 
+import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
@@ -27,17 +32,31 @@ public class ManagementSchema<T> {
     private final Codec<T> codec;
     private final RpcSchema schema;
     private final String name;
+    private final List<SchemaData<T,?>> properties;
+    private volatile ManagementSchema<List<T>> list;
 
     public ManagementSchema(Codec<T> codec, RpcSchema schema, String name) {
-        this.codec = codec;
-        this.schema = schema;
-        this.name = name;
+        this(codec, schema, name, null);
     }
 
     public ManagementSchema(Codec<T> codec, RpcSchemaEntry schema) {
+        this(codec, schema, null);
+    }
+
+    /**
+     * @param codec The codec of the schema.
+     * @param schema The registered schema entry.
+     * @param properties The properties of the record represented by this schema, in order. May be {@code null} if the schema isn't a record.
+     */
+    public ManagementSchema(Codec<T> codec, RpcSchemaEntry schema, List<SchemaData<T,?>> properties) {
+        this(codec, schema == null ? null : schema.ref(), schema == null ? null : schema.name(), properties);
+    }
+
+    private ManagementSchema(Codec<T> codec, RpcSchema schema, String name, List<SchemaData<T,?>> properties) {
         this.codec = codec;
-        this.schema = schema == null ? null : schema.ref();
-        this.name = schema == null ? null : schema.name();
+        this.schema = schema;
+        this.name = name;
+        this.properties = properties;
     }
 
     public Codec<T> getCodec() {
@@ -52,12 +71,63 @@ public class ManagementSchema<T> {
         return name;
     }
 
+    /**
+     * @return The properties of the record represented by this schema, in order, or {@code null} if this schema isn't built using a schema builder.
+     */
+    public List<SchemaData<T,?>> getProperties() {
+        return properties;
+    }
+
     /**
      * Converts this schema to a list schema of the same type.
+     * The list schema is created once and returned by every later call, so its stream encoder and decoder are only registered once.
      * @return The list schema of the same type.
      */
     public ManagementSchema<List<T>> asList() {
-        return new ManagementSchema<>(codec == null ? null : Codec.list(codec), schema == null ? null : schema.asArray(), name);
+        ManagementSchema<List<T>> current = list;
+        if(current != null) {
+            return current;
+        }
+        synchronized(this) {
+            if(list == null) {
+                Codec<List<T>> listCodec = codec == null ? null : Codec.list(codec);
+                JsonStreamEncoders.registerList(listCodec, codec);
+                JsonStreamDecoders.registerList(listCodec, codec);
+                list = new ManagementSchema<>(listCodec, schema == null ? null : schema.asArray(), name);
+            }
+            return list;
+        }
+    }
+
+    /**
+     * Writes a value directly to a JSON writer. The written JSON is identical to the JSON created by the codec of this schema.
+     * Record schemas built using the schema builder and lists of them are written without creating {@code JsonElement}s; other schemas are encoded using their codec.
+     * @param writer The writer to write the value to.
+     * @param value The value to write.
+     * @throws IOException If the writer fails.
+     * @throws IllegalStateException If this schema has no codec or the value can't be encoded.
+     */
+    public void write(JsonWriter writer, T value) throws IOException, IllegalStateException {
+        if(codec == null) {
+            throw new IllegalStateException("Schema has no codec");
+        }
+        JsonStreamEncoders.get(codec).write(writer, value);
+    }
+
+    /**
+     * Reads a value directly from a JSON reader. Reads the same values as the codec of this schema.
+     * Record schemas built using the schema builder and lists of them are read without creating {@code JsonElement}s; unknown record properties are skipped.
+     * Other schemas are decoded using their codec.
+     * @param reader The reader positioned at the value.
+     * @return The read value.
+     * @throws IOException If the reader fails or the JSON is malformed.
+     * @throws IllegalStateException If this schema has no codec or the value doesn't match the schema.
+     */
+    public T read(JsonReader reader) throws IOException, IllegalStateException {
+        if(codec == null) {
+            throw new IllegalStateException("Schema has no codec");
+        }
+        return JsonStreamDecoders.get(codec).read(reader);
     }
 
     /**
@@ -93,7 +163,7 @@ public class ManagementSchema<T> {
     public static <T> ManagementSchema<T> recursive(Identifier identifier, BiFunction<RecordSchemaBuilder.RecordSchemaBuilder0<T>, ManagementSchema<T>, ManagementSchema<T>> builderFunction) {
         ManagementSchema<T> wrapper = builderFunction.apply(builder(identifier), new ManagementSchema<>(null, RpcSchema.ofReference(UriUtil.createSchemasUri(identifier.toString())), identifier.toString()));
         Codec<T> codec = Codec.recursive(identifier.toString(), c -> builderFunction.apply(builder(identifier), new ManagementSchema<>(c, null, identifier.toString())).getCodec());
-        return new ManagementSchema<>(codec, wrapper.getSchema(), identifier.toString());
+        return new ManagementSchema<>(codec, wrapper.getSchema(), identifier.toString(), wrapper.getProperties());
     }
 
     /**
@@ -189,6 +259,7 @@ public class ManagementSchema<T> {
 
     public static ManagementSchema<Boolean> BOOLEAN = new ManagementSchema<>(Codec.BOOL, RpcSchema.BOOLEAN, "boolean");
     public static ManagementSchema<Integer> INTEGER = new ManagementSchema<>(Codec.INT, RpcSchema.INTEGER, "integer");
+    public static ManagementSchema<Long> LONG = new ManagementSchema<>(Codec.LONG, RpcSchema.INTEGER, "long");
     public static ManagementSchema<String> STRING = new ManagementSchema<>(Codec.STRING, RpcSchema.STRING, "string");
     public static ManagementSchema<RpcPlayer> PLAYER = new ManagementSchema<>(RpcPlayer.CODEC.codec(), RpcSchema.PLAYER);
     public static ManagementSchema<RpcKickReason> MESSAGE = new ManagementSchema<>(RpcKickReason.CODEC, RpcSchema.MESSAGE);
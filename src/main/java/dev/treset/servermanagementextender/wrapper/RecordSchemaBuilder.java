@@ -4,6 +4,9 @@ import com.mojang.datafixers.kinds.App;
 import com.mojang.datafixers.util.*;
 import com.mojang.serialization.Codec;
 import com.mojang.serialization.codecs.RecordCodecBuilder;
+import dev.treset.servermanagementextender.codec.GeneratedRecordCodec;
+import dev.treset.servermanagementextender.codec.JsonStreamDecoders;
+import dev.treset.servermanagementextender.codec.JsonStreamEncoders;
 import dev.treset.servermanagementextender.mixin.RpcSchemaMixin;
 import net.minecraft.server.dedicated.management.schema.RpcSchema;
 import net.minecraft.server.dedicated.management.schema.RpcSchemaEntry;
@@ -19,25 +22,53 @@ public abstract class RecordSchemaBuilder<T> {
 
     protected abstract List<SchemaData<T,?>> propertiesList();
 
-    protected ManagementSchema<T> buildInternal(Function<RecordCodecBuilder.Instance<T>, App<RecordCodecBuilder.Mu<T>, T>> createInstance) {
+    protected ManagementSchema<T> buildInternal(Function<RecordCodecBuilder.Instance<T>, App<RecordCodecBuilder.Mu<T>, T>> createInstance, Function<Object[], T> creator) {
         List<SchemaData<T,?>> props = propertiesList();
 
         Codec<T> codec = null;
-        RpcSchemaEntry schemaEntry = null;
 
         if(props.stream().allMatch(p -> p.codecBuilder() != null)) {
             codec = RecordCodecBuilder.create(createInstance);
+            JsonStreamEncoders.registerRecord(codec, props, null);
+            JsonStreamDecoders.registerRecord(codec, props, creator);
         }
 
+        return new ManagementSchema<>(codec, registerSchema(props), props);
+    }
+
+    /**
+     * Builds and registers the management schema of a record class using a generated codec.
+     * <p>
+     * The generated codec reads the record components and calls the canonical constructor directly instead of going through the property getters and an applicator.
+     * Its output is identical to the codec built using an applicator.
+     * The properties must be declared in the order of the record components and named like them, ignoring case, underscores and hyphens.
+     * @param recordClass The record class. Must have exactly one component per property, in the same order and with a matching name and type.
+     * @return The created management schema.
+     * @throws IllegalArgumentException If the properties don't match the record components.
+     */
+    public ManagementSchema<T> build(Class<T> recordClass) throws IllegalArgumentException {
+        List<SchemaData<T,?>> props = propertiesList();
+
+        Codec<T> codec = null;
+        if(props.stream().allMatch(p -> p.codec() != null)) {
+            GeneratedRecordCodec<T> generated = new GeneratedRecordCodec<>(recordClass, props);
+            codec = generated.codec();
+            JsonStreamEncoders.registerRecord(codec, props, generated.getAccessor());
+            JsonStreamDecoders.registerRecord(codec, props, values -> recordClass.cast(generated.getAccessor().create(values)));
+        }
+
+        return new ManagementSchema<>(codec, registerSchema(props), props);
+    }
+
+    private RpcSchemaEntry registerSchema(List<SchemaData<T,?>> props) {
         if(props.stream().allMatch(p -> p.schema() != null)) {
             RpcSchema schema = RpcSchema.ofObject();
-            for (SchemaData<T, ?> p : propertiesList()) {
+            for (SchemaData<T, ?> p : props) {
                 schema = p.applyToSchema(schema);
             }
-            schemaEntry = RpcSchemaMixin.msme$registerEntry(identifier.toString(), schema);
+            return RpcSchemaMixin.msme$registerEntry(identifier.toString(), schema);
         }
-
-        return new ManagementSchema<>(codec, schemaEntry);
+        return null;
     }
 
     public static class RecordSchemaBuilder0<T> extends RecordSchemaBuilder<T> {
@@ -184,11 +215,13 @@ public abstract class RecordSchemaBuilder<T> {
          * @param applicator A function creating the reference type from all property types.
          * @return The created management schema.
          */
+        @SuppressWarnings("unchecked")
         public ManagementSchema<T> build(Function<T1,T> applicator) {
             return buildInternal(
                     i -> i.group(
                             p1.codecBuilder()
-                    ).apply(i, applicator)
+                    ).apply(i, applicator),
+                    values -> applicator.apply((T1)values[0])
             );
         }
 
@@ -272,12 +305,14 @@ public abstract class RecordSchemaBuilder<T> {
          * @param applicator A function creating the reference type from all property types.
          * @return The created management schema.
          */
+        @SuppressWarnings("unchecked")
         public ManagementSchema<T> build(BiFunction<T1,T2,T> applicator) {
             return buildInternal(
                     i -> i.group(
                             p1.codecBuilder(),
                             p2.codecBuilder()
-                    ).apply(i, applicator)
+                    ).apply(i, applicator),
+                    values -> applicator.apply((T1)values[0], (T2)values[1])
             );
         }
 
@@ -363,13 +398,15 @@ public abstract class RecordSchemaBuilder<T> {
          * @param applicator A function creating the reference type from all property types.
          * @return The created management schema.
          */
+        @SuppressWarnings("unchecked")
         public ManagementSchema<T> build(Function3<T1,T2,T3,T> applicator) {
             return buildInternal(
                     i -> i.group(
                             p1.codecBuilder(),
                             p2.codecBuilder(),
                             p3.codecBuilder()
-                    ).apply(i, applicator)
+                    ).apply(i, applicator),
+                    values -> applicator.apply((T1)values[0], (T2)values[1], (T3)values[2])
             );
         }
 
@@ -457,6 +494,7 @@ public abstract class RecordSchemaBuilder<T> {
          * @param applicator A function creating the reference type from all property types.
          * @return The created management schema.
          */
+        @SuppressWarnings("unchecked")
         public ManagementSchema<T> build(Function4<T1,T2,T3,T4,T> applicator) {
             return buildInternal(
                     i -> i.group(
@@ -464,7 +502,8 @@ public abstract class RecordSchemaBuilder<T> {
                             p2.codecBuilder(),
                             p3.codecBuilder(),
                             p4.codecBuilder()
-                    ).apply(i, applicator)
+                    ).apply(i, applicator),
+                    values -> applicator.apply((T1)values[0], (T2)values[1], (T3)values[2], (T4)values[3])
             );
         }
 
@@ -554,6 +593,7 @@ public abstract class RecordSchemaBuilder<T> {
          * @param applicator A function creating the reference type from all property types.
          * @return The created management schema.
          */
+        @SuppressWarnings("unchecked")
         public ManagementSchema<T> build(Function5<T1,T2,T3,T4,T5,T> applicator) {
             return buildInternal(
                     i -> i.group(
@@ -562,7 +602,8 @@ public abstract class RecordSchemaBuilder<T> {
                             p3.codecBuilder(),
                             p4.codecBuilder(),
                             p5.codecBuilder()
-                    ).apply(i, applicator)
+                    ).apply(i, applicator),
+                    values -> applicator.apply((T1)values[0], (T2)values[1], (T3)values[2], (T4)values[3], (T5)values[4])
             );
         }
 
@@ -654,6 +695,7 @@ public abstract class RecordSchemaBuilder<T> {
          * @param applicator A function creating the reference type from all property types.
          * @return The created management schema.
          */
+        @SuppressWarnings("unchecked")
         public ManagementSchema<T> build(Function6<T1,T2,T3,T4,T5,T6,T> applicator) {
             return buildInternal(
                     i -> i.group(
@@ -663,7 +705,8 @@ public abstract class RecordSchemaBuilder<T> {
                             p4.codecBuilder(),
                             p5.codecBuilder(),
                             p6.codecBuilder()
-                    ).apply(i, applicator)
+                    ).apply(i, applicator),
+                    values -> applicator.apply((T1)values[0], (T2)values[1], (T3)values[2], (T4)values[3], (T5)values[4], (T6)values[5])
             );
         }
 
@@ -757,6 +800,7 @@ public abstract class RecordSchemaBuilder<T> {
          * @param applicator A function creating the reference type from all property types.
          * @return The created management schema.
          */
+        @SuppressWarnings("unchecked")
         public ManagementSchema<T> build(Function7<T1,T2,T3,T4,T5,T6,T7,T> applicator) {
             return buildInternal(
                     i -> i.group(
@@ -767,7 +811,8 @@ public abstract class RecordSchemaBuilder<T> {
                             p5.codecBuilder(),
                             p6.codecBuilder(),
                             p7.codecBuilder()
-                    ).apply(i, applicator)
+                    ).apply(i, applicator),
+                    values -> applicator.apply((T1)values[0], (T2)values[1], (T3)values[2], (T4)values[3], (T5)values[4], (T6)values[5], (T7)values[6])
             );
         }
 
@@ -863,6 +908,7 @@ public abstract class RecordSchemaBuilder<T> {
          * @param applicator A function creating the reference type from all property types.
          * @return The created management schema.
          */
+        @SuppressWarnings("unchecked")
         public ManagementSchema<T> build(Function8<T1,T2,T3,T4,T5,T6,T7,T8,T> applicator) {
             return buildInternal(
                     i -> i.group(
@@ -874,7 +920,8 @@ public abstract class RecordSchemaBuilder<T> {
                             p6.codecBuilder(),
                             p7.codecBuilder(),
                             p8.codecBuilder()
-                    ).apply(i, applicator)
+                    ).apply(i, applicator),
+                    values -> applicator.apply((T1)values[0], (T2)values[1], (T3)values[2], (T4)values[3], (T5)values[4], (T6)values[5], (T7)values[6], (T8)values[7])
             );
         }
 
@@ -972,6 +1019,7 @@ public abstract class RecordSchemaBuilder<T> {
          * @param applicator A function creating the reference type from all property types.
          * @return The created management schema.
          */
+        @SuppressWarnings("unchecked")
         public ManagementSchema<T> build(Function9<T1,T2,T3,T4,T5,T6,T7,T8,T9,T> applicator) {
             return buildInternal(
                     i -> i.group(
@@ -984,7 +1032,8 @@ public abstract class RecordSchemaBuilder<T> {
                             p7.codecBuilder(),
                             p8.codecBuilder(),
                             p9.codecBuilder()
-                    ).apply(i, applicator)
+                    ).apply(i, applicator),
+                    values -> applicator.apply((T1)values[0], (T2)values[1], (T3)values[2], (T4)values[3], (T5)values[4], (T6)values[5], (T7)values[6], (T8)values[7], (T9)values[8])
             );
         }
 
@@ -1084,6 +1133,7 @@ public abstract class RecordSchemaBuilder<T> {
          * @param applicator A function creating the reference type from all property types.
          * @return The created management schema.
          */
+        @SuppressWarnings("unchecked")
         public ManagementSchema<T> build(Function10<T1,T2,T3,T4,T5,T6,T7,T8,T9,T10,T> applicator) {
             return buildInternal(
                     i -> i.group(
@@ -1097,7 +1147,8 @@ public abstract class RecordSchemaBuilder<T> {
                             p8.codecBuilder(),
                             p9.codecBuilder(),
                             p10.codecBuilder()
-                    ).apply(i, applicator)
+                    ).apply(i, applicator),
+                    values -> applicator.apply((T1)values[0], (T2)values[1], (T3)values[2], (T4)values[3], (T5)values[4], (T6)values[5], (T7)values[6], (T8)values[7], (T9)values[8], (T10)values[9])
             );
         }
 
@@ -1199,6 +1250,7 @@ public abstract class RecordSchemaBuilder<T> {
          * @param applicator A function creating the reference type from all property types.
          * @return The created management schema.
          */
+        @SuppressWarnings("unchecked")
         public ManagementSchema<T> build(Function11<T1,T2,T3,T4,T5,T6,T7,T8,T9,T10,T11,T> applicator) {
             return buildInternal(
                     i -> i.group(
@@ -1213,7 +1265,8 @@ public abstract class RecordSchemaBuilder<T> {
                             p9.codecBuilder(),
                             p10.codecBuilder(),
                             p11.codecBuilder()
-                    ).apply(i, applicator)
+                    ).apply(i, applicator),
+                    values -> applicator.apply((T1)values[0], (T2)values[1], (T3)values[2], (T4)values[3], (T5)values[4], (T6)values[5], (T7)values[6], (T8)values[7], (T9)values[8], (T10)values[9], (T11)values[10])
             );
         }
 
@@ -1317,6 +1370,7 @@ public abstract class RecordSchemaBuilder<T> {
          * @param applicator A function creating the reference type from all property types.
          * @return The created management schema.
          */
+        @SuppressWarnings("unchecked")
         public ManagementSchema<T> build(Function12<T1,T2,T3,T4,T5,T6,T7,T8,T9,T10,T11,T12,T> applicator) {
             return buildInternal(
                     i -> i.group(
@@ -1332,7 +1386,8 @@ public abstract class RecordSchemaBuilder<T> {
                             p10.codecBuilder(),
                             p11.codecBuilder(),
                             p12.codecBuilder()
-                    ).apply(i, applicator)
+                    ).apply(i, applicator),
+                    values -> applicator.apply((T1)values[0], (T2)values[1], (T3)values[2], (T4)values[3], (T5)values[4], (T6)values[5], (T7)values[6], (T8)values[7], (T9)values[8], (T10)values[9], (T11)values[10], (T12)values[11])
             );
         }
 
@@ -1438,6 +1493,7 @@ public abstract class RecordSchemaBuilder<T> {
          * @param applicator A function creating the reference type from all property types.
          * @return The created management schema.
          */
+        @SuppressWarnings("unchecked")
         public ManagementSchema<T> build(Function13<T1,T2,T3,T4,T5,T6,T7,T8,T9,T10,T11,T12,T13,T> applicator) {
             return buildInternal(
                     i -> i.group(
@@ -1454,7 +1510,8 @@ public abstract class RecordSchemaBuilder<T> {
                             p11.codecBuilder(),
                             p12.codecBuilder(),
                             p13.codecBuilder()
-                    ).apply(i, applicator)
+                    ).apply(i, applicator),
+                    values -> applicator.apply((T1)values[0], (T2)values[1], (T3)values[2], (T4)values[3], (T5)values[4], (T6)values[5], (T7)values[6], (T8)values[7], (T9)values[8], (T10)values[9], (T11)values[10], (T12)values[11], (T13)values[12])
             );
         }
 
@@ -1562,6 +1619,7 @@ public abstract class RecordSchemaBuilder<T> {
          * @param applicator A function creating the reference type from all property types.
          * @return The created management schema.
          */
+        @SuppressWarnings("unchecked")
         public ManagementSchema<T> build(Function14<T1,T2,T3,T4,T5,T6,T7,T8,T9,T10,T11,T12,T13,T14,T> applicator) {
             return buildInternal(
                     i -> i.group(
@@ -1579,7 +1637,8 @@ public abstract class RecordSchemaBuilder<T> {
                             p12.codecBuilder(),
                             p13.codecBuilder(),
                             p14.codecBuilder()
-                    ).apply(i, applicator)
+                    ).apply(i, applicator),
+                    values -> applicator.apply((T1)values[0], (T2)values[1], (T3)values[2], (T4)values[3], (T5)values[4], (T6)values[5], (T7)values[6], (T8)values[7], (T9)values[8], (T10)values[9], (T11)values[10], (T12)values[11], (T13)values[12], (T14)values[13])
             );
         }
 
@@ -1689,6 +1748,7 @@ public abstract class RecordSchemaBuilder<T> {
          * @param applicator A function creating the reference type from all property types.
          * @return The created management schema.
          */
+        @SuppressWarnings("unchecked")
         public ManagementSchema<T> build(Function15<T1,T2,T3,T4,T5,T6,T7,T8,T9,T10,T11,T12,T13,T14,T15,T> applicator) {
             return buildInternal(
                     i -> i.group(
@@ -1707,7 +1767,8 @@ public abstract class RecordSchemaBuilder<T> {
                             p13.codecBuilder(),
                             p14.codecBuilder(),
                             p15.codecBuilder()
-                    ).apply(i, applicator)
+                    ).apply(i, applicator),
+                    values -> applicator.apply((T1)values[0], (T2)values[1], (T3)values[2], (T4)values[3], (T5)values[4], (T6)values[5], (T7)values[6], (T8)values[7], (T9)values[8], (T10)values[9], (T11)values[10], (T12)values[11], (T13)values[12], (T14)values[13], (T15)values[14])
             );
         }
 
@@ -1759,6 +1820,7 @@ public abstract class RecordSchemaBuilder<T> {
          * @param applicator A function creating the reference type from all property types.
          * @return The created management schema.
          */
+        @SuppressWarnings("unchecked")
         public ManagementSchema<T> build(Function16<T1,T2,T3,T4,T5,T6,T7,T8,T9,T10,T11,T12,T13,T14,T15,T16,T> applicator) {
             return buildInternal(
                     i -> i.group(
@@ -1778,7 +1840,8 @@ public abstract class RecordSchemaBuilder<T> {
                             p14.codecBuilder(),
                             p15.codecBuilder(),
                             p16.codecBuilder()
-                    ).apply(i, applicator)
+                    ).apply(i, applicator),
+                    values -> applicator.apply((T1)values[0], (T2)values[1], (T3)values[2], (T4)values[3], (T5)values[4], (T6)values[5], (T7)values[6], (T8)values[7], (T9)values[8], (T10)values[9], (T11)values[10], (T12)values[11], (T13)values[12], (T14)values[13], (T15)values[14], (T16)values[15])
             );
         }
 
@@ -3,6 +3,17 @@ package dev.treset.servermanagementextender.wrapper;
 import com.mojang.datafixers.util.Function3;
 import com.mojang.serialization.Codec;
 import dev.treset.servermanagementextender.accessors.IncomingRpcMethodBuilderAccessor;
+import dev.treset.servermanagementextender.request.MainThreadScheduler;
+import dev.treset.servermanagementextender.request.MemoizationCache;
+import dev.treset.servermanagementextender.request.RequestContext;
+import dev.treset.servermanagementextender.request.RequestDispatcher;
+import dev.treset.servermanagementextender.request.RequestQuota;
+import dev.treset.servermanagementextender.request.ResponseCache;
+import dev.treset.servermanagementextender.request.ResultCache;
+import dev.treset.servermanagementextender.request.RpcException;
+import dev.treset.servermanagementextender.request.RpcRequestMethod;
+import dev.treset.servermanagementextender.request.SingleFlight;
+import dev.treset.servermanagementextender.request.VirtualThreadExecutor;
 import net.minecraft.server.dedicated.management.IncomingRpcMethod;
 import net.minecraft.server.dedicated.management.RpcRequestParameter;
 import net.minecraft.server.dedicated.management.RpcResponseResult;
@@ -12,6 +23,11 @@ import net.minecraft.server.dedicated.management.schema.RpcSchema;
 import net.minecraft.server.dedicated.management.schema.RpcSchemaEntry;
 import net.minecraft.util.Identifier;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiFunction;
 import java.util.function.Function;
 
 /**
@@ -24,6 +40,11 @@ public abstract class RpcMethodBuilder<R> {
     protected final RpcSchema schema;
     protected Identifier identifier;
     protected String description;
+    protected int virtualThreadConcurrency;
+    protected boolean mainThread;
+    protected boolean singleFlight;
+    protected RequestQuota quota;
+    protected Duration timeout;
 
     private RpcMethodBuilder(String name, Codec<R> codec, RpcSchema schema) {
         this.name = name;
@@ -31,6 +52,56 @@ public abstract class RpcMethodBuilder<R> {
         this.schema = schema;
     }
 
+    /**
+     * Registers the method to be handled by the library instead of the vanilla request processing, applying the configured execution mode.
+     * @param parameterName The name of the parameter. {@code null} if the method doesn't take a parameter.
+     * @param parameterCodec The codec of the parameter. {@code null} if the method doesn't take a parameter.
+     * @param handler The function handling a request.
+     * @param caches The caches a request goes through before the handler is run, outermost first.
+     * @param <T> The type of object in the request parameter.
+     */
+    protected <T> void registerRequestMethod(String parameterName, Codec<T> parameterCodec, BiFunction<RequestContext, T, CompletableFuture<R>> handler, List<ResultCache<? super T>> caches) {
+        // The cancellation token is bound on the thread actually calling the handler
+        BiFunction<RequestContext, T, CompletableFuture<R>> bound = (context, parameter) -> context.getCancellation().call(() -> handler.apply(context, parameter));
+        BiFunction<RequestContext, T, CompletableFuture<R>> executed = bound;
+        if(virtualThreadConcurrency > 0) {
+            VirtualThreadExecutor executor = new VirtualThreadExecutor(virtualThreadConcurrency);
+            executed = (context, parameter) -> executor.submit(() -> bound.apply(context, parameter).join(), context.getCancellation());
+        } else if(mainThread) {
+            executed = (context, parameter) -> MainThreadScheduler.submit(() -> {
+                context.getCancellation().throwIfCancelled();
+                return bound.apply(context, parameter);
+            }).thenCompose(result -> result);
+        }
+        RequestDispatcher.register(new RpcRequestMethod<>(identifier, parameterName, parameterCodec, codec, executed, caches, quota, timeout));
+    }
+
+    /**
+     * The vanilla method is only registered for discovery, all requests including those in batches are handled by the {@link RequestDispatcher}.
+     * Running the handler from the vanilla method would bypass the quota, timeout and caches and run it on the thread processing the connection,
+     * regardless of the configured execution mode.
+     * @return The error thrown if the vanilla method is called anyway.
+     */
+    protected IllegalStateException notDispatched() {
+        return new IllegalStateException("Request for " + identifier + " was not handled by the request dispatcher");
+    }
+
+    /**
+     * @param cache The configured response cache. May be {@code null}.
+     * @return The caches a request goes through before the handler is run, outermost first.
+     * @param <T> The type of object in the request parameter.
+     */
+    protected <T> List<ResultCache<? super T>> caches(ResultCache<? super T> cache) {
+        List<ResultCache<? super T>> caches = new ArrayList<>();
+        if(cache != null) {
+            caches.add(cache);
+        }
+        if(singleFlight) {
+            caches.add(new SingleFlight<T>());
+        }
+        return caches;
+    }
+
     /**
      * Creates an RPC request method builder.
      * @param codec The codec of the RPC response.
@@ -52,7 +123,19 @@ public abstract class RpcMethodBuilder<R> {
         return new RpcParameterlessMethodBuilder<>(schema.getName(), schema.getCodec(), schema.getSchema());
     }
 
+    /**
+     * Creates a builder of an RPC request method returning a list in pages.
+     * @param itemSchema The schema of the items in the list.
+     * @return The paginated RPC request method builder.
+     * @param <E> The type of the items in the list.
+     */
+    public static <E> RpcPaginatedMethodBuilder<E> paginated(ManagementSchema<E> itemSchema) {
+        return new RpcPaginatedMethodBuilder<>(itemSchema);
+    }
+
     public static class RpcParameterlessMethodBuilder<R> extends RpcMethodBuilder<R> {
+        private ResponseCache cache;
+
         private RpcParameterlessMethodBuilder(String name, Codec<R> codec, RpcSchema schema) {
             super(name, codec, schema);
         }
@@ -88,14 +171,101 @@ public abstract class RpcMethodBuilder<R> {
             return this;
         }
 
+        /**
+         * Runs the handler on a virtual thread instead of the thread processing the connection.
+         * Use this for handlers doing blocking work like file or database access.
+         * The response is sent when the handler completes, other requests are processed in the meantime.
+         * @param maxConcurrency The maximum amount of handlers of this method running at the same time. Further requests wait until a running handler completes.
+         * @return The changed RPC request method builder.
+         */
+        public RpcParameterlessMethodBuilder<R> virtualThreads(int maxConcurrency) {
+            if(maxConcurrency <= 0) {
+                throw new IllegalArgumentException("Max concurrency must be positive: " + maxConcurrency);
+            }
+            this.virtualThreadConcurrency = maxConcurrency;
+            this.mainThread = false;
+            return this;
+        }
+
+        /**
+         * Runs the handler on the server thread at the end of a tick instead of the thread processing the connection.
+         * Use this for handlers accessing world state. Handlers are run within the time budget of the {@link MainThreadScheduler}.
+         * @return The changed RPC request method builder.
+         */
+        public RpcParameterlessMethodBuilder<R> mainThread() {
+            this.mainThread = true;
+            this.virtualThreadConcurrency = 0;
+            return this;
+        }
+
+        /**
+         * Caches the encoded response and serves it to all connections until it expires. Only use this for methods without side effects.
+         * @param ttl How long a response is served after it was created.
+         * @return The changed RPC request method builder.
+         */
+        public RpcParameterlessMethodBuilder<R> cache(Duration ttl) {
+            return cache(ResponseCache.expireAfter(ttl));
+        }
+
+        /**
+         * Caches the encoded response and serves it to all connections until it expires. Only use this for methods without side effects.
+         * Keep a reference to the cache to invalidate it when the response changes.
+         * @param cache The cache. Created using {@link ResponseCache#expireAfter(Duration)} or {@link ResponseCache#expireAfter(Duration, Duration)}.
+         * @return The changed RPC request method builder.
+         */
+        public RpcParameterlessMethodBuilder<R> cache(ResponseCache cache) {
+            this.cache = cache;
+            return this;
+        }
+
+        /**
+         * Collapses concurrent requests into a single handler invocation whose result is sent to all of them.
+         * The handler runs independently of the requests, it is only cancelled once all waiting requests have timed out or been cancelled.
+         * @return The changed RPC request method builder.
+         */
+        public RpcParameterlessMethodBuilder<R> singleFlight() {
+            this.singleFlight = true;
+            return this;
+        }
+
+        /**
+         * Limits how many requests to this method each connection may send. Requests exceeding the quota are answered with an error without running the handler.
+         * @param requestsPerSecond The sustained amount of requests allowed per second. {@code 0} for no rate limit.
+         * @param burst The amount of requests allowed at once.
+         * @param maxConcurrent The maximum amount of requests of a connection handled at the same time. {@code 0} for no concurrency limit.
+         * @return The changed RPC request method builder.
+         */
+        public RpcParameterlessMethodBuilder<R> quota(double requestsPerSecond, int burst, int maxConcurrent) {
+            this.quota = new RequestQuota(requestsPerSecond, burst, maxConcurrent);
+            return this;
+        }
+
+        /**
+         * Sets the time after which requests are cancelled and answered with a timeout error. By default, requests don't time out.
+         * Clients can set a shorter timeout for a single request.
+         * @param timeout The timeout.
+         * @return The changed RPC request method builder.
+         */
+        public RpcParameterlessMethodBuilder<R> timeout(Duration timeout) {
+            if(timeout.isNegative() || timeout.isZero()) {
+                throw new IllegalArgumentException("Timeout must be positive: " + timeout);
+            }
+            this.timeout = timeout;
+            return this;
+        }
+
         /**
          * Adds a parameter requirement to the RPC request method.
          * @param schema The schema of the parameter content.
          * @return A new RPC request method builder containing the parameter.
          * @param <T> The type of object in the RPC request parameter.
+         * @throws IllegalStateException If a response cache is configured. Response caches only apply to parameterless methods, use memoization instead.
          */
-        public <T> RpcParametrizedMethodBuilder<T,R> parameter(ManagementSchema<T> schema) {
-            return new RpcParametrizedMethodBuilder<>(
+        public <T> RpcParametrizedMethodBuilder<T,R> parameter(ManagementSchema<T> schema) throws IllegalStateException {
+            if(cache != null) {
+                throw new IllegalStateException("Response caches only apply to parameterless methods, use memoize instead");
+            }
+            RpcParametrizedMethodBuilder<T,R> builder = new RpcParametrizedMethodBuilder<>(
                     name,
                     codec,
                     this.schema,
@@ -105,6 +275,12 @@ public abstract class RpcMethodBuilder<R> {
                     schema.getCodec(),
                     schema.getSchema()
             );
+            builder.virtualThreadConcurrency = virtualThreadConcurrency;
+            builder.mainThread = mainThread;
+            builder.singleFlight = singleFlight;
+            builder.quota = quota;
+            builder.timeout = timeout;
+            return builder;
         }
 
         /**
@@ -112,14 +288,36 @@ public abstract class RpcMethodBuilder<R> {
          * @param handler A function that is called when a request is received, taking a {@code ManagementHandlerDispatcher} and returning the data to be sent in the response.
          * @return The created method. Can generally be ignored.
          */
-        @SuppressWarnings("unchecked")
         public IncomingRpcMethod.Parameterless<R> build(Function<ManagementHandlerDispatcher, R> handler) {
+            IncomingRpcMethod.Parameterless<R> method = registerVanilla();
+            this.<Void>registerRequestMethod(null, null, (context, parameter) -> CompletableFuture.completedFuture(handler.apply(context.getDispatcher())), caches(cache));
+            return method;
+        }
+
+        /**
+         * Builds and registers the RPC request method with an asynchronous handler. An identifier is required before building.
+         * <p>
+         * The response is sent when the returned future completes. The connection processes other requests in the meantime.
+         * If the future completes exceptionally, an error response is sent. Throw or complete with an {@link RpcException} to control the error code.
+         * @param handler A function that is called when a request is received, taking a {@code ManagementHandlerDispatcher} and returning a future completed with the data to be sent in the response.
+         * @return The created method. Can generally be ignored.
+         */
+        public IncomingRpcMethod.Parameterless<R> buildAsync(Function<ManagementHandlerDispatcher, CompletableFuture<R>> handler) {
+            IncomingRpcMethod.Parameterless<R> method = registerVanilla();
+            this.<Void>registerRequestMethod(null, null, (context, parameter) -> handler.apply(context.getDispatcher()), caches(cache));
+            return method;
+        }
+
+        @SuppressWarnings("unchecked")
+        private IncomingRpcMethod.Parameterless<R> registerVanilla() {
             if(identifier == null) {
                 throw new IllegalStateException("Identifier is not set");
             }
 
             IncomingRpcMethod.Builder<IncomingRpcMethod.Parameterless<R>> builder = IncomingRpcMethod.createParameterlessBuilder(
-                    handler,
+                    dispatcher -> {
+                        throw notDispatched();
+                    },
                     codec
             ).result(
                     new RpcResponseResult(name, schema)
@@ -138,6 +336,7 @@ public abstract class RpcMethodBuilder<R> {
         private String parameterName;
         private final Codec<T> parameterCodec;
         private final RpcSchema parameterSchema;
+        private MemoizationCache<T> memoization;
 
         private RpcParametrizedMethodBuilder(String name, Codec<R> codec, RpcSchema schema, Identifier identifier, String description, String parameterName, Codec<T> parameterCodec, RpcSchema parameterSchema) {
             super(name, codec, schema);
@@ -189,19 +388,164 @@ public abstract class RpcMethodBuilder<R> {
             return this;
         }
 
+        /**
+         * Runs the handler on a virtual thread instead of the thread processing the connection.
+         * Use this for handlers doing blocking work like file or database access.
+         * The response is sent when the handler completes, other requests are processed in the meantime.
+         * @param maxConcurrency The maximum amount of handlers of this method running at the same time. Further requests wait until a running handler completes.
+         * @return The changed RPC request method builder.
+         */
+        public RpcParametrizedMethodBuilder<T,R> virtualThreads(int maxConcurrency) {
+            if(maxConcurrency <= 0) {
+                throw new IllegalArgumentException("Max concurrency must be positive: " + maxConcurrency);
+            }
+            this.virtualThreadConcurrency = maxConcurrency;
+            this.mainThread = false;
+            return this;
+        }
+
+        /**
+         * Runs the handler on the server thread at the end of a tick instead of the thread processing the connection.
+         * Use this for handlers accessing world state. Handlers are run within the time budget of the {@link MainThreadScheduler}.
+         * @return The changed RPC request method builder.
+         */
+        public RpcParametrizedMethodBuilder<T,R> mainThread() {
+            this.mainThread = true;
+            this.virtualThreadConcurrency = 0;
+            return this;
+        }
+
+        /**
+         * Caches encoded responses keyed by the request parameter. Only use this for methods whose response only depends on the parameter.
+         * Requires a handler that doesn't take a connection id.
+         * @param maxSize The maximum amount of cached responses. The least recently used response is evicted when full.
+         * @param ttl How long a response is served after it was created.
+         * @return The changed RPC request method builder.
+         */
+        public RpcParametrizedMethodBuilder<T,R> memoize(int maxSize, Duration ttl) {
+            return memoize(new MemoizationCache<>(maxSize, ttl));
+        }
+
+        /**
+         * Caches encoded responses keyed by the request parameter. Only use this for methods whose response only depends on the parameter.
+         * Requires a handler that doesn't take a connection id.
+         * Keep a reference to the cache to invalidate responses or read its statistics.
+         * @param cache The cache.
+         * @return The changed RPC request method builder.
+         */
+        public RpcParametrizedMethodBuilder<T,R> memoize(MemoizationCache<T> cache) {
+            this.memoization = cache;
+            return this;
+        }
+
+        /**
+         * Collapses concurrent requests with equal parameters into a single handler invocation whose result is sent to all of them.
+         * The handler runs independently of the requests, it is only cancelled once all waiting requests have timed out or been cancelled.
+         * Requires a handler that doesn't take a connection id.
+         * @return The changed RPC request method builder.
+         */
+        public RpcParametrizedMethodBuilder<T,R> singleFlight() {
+            this.singleFlight = true;
+            return this;
+        }
+
+        /**
+         * Limits how many requests to this method each connection may send. Requests exceeding the quota are answered with an error without running the handler.
+         * @param requestsPerSecond The sustained amount of requests allowed per second. {@code 0} for no rate limit.
+         * @param burst The amount of requests allowed at once.
+         * @param maxConcurrent The maximum amount of requests of a connection handled at the same time. {@code 0} for no concurrency limit.
+         * @return The changed RPC request method builder.
+         */
+        public RpcParametrizedMethodBuilder<T,R> quota(double requestsPerSecond, int burst, int maxConcurrent) {
+            this.quota = new RequestQuota(requestsPerSecond, burst, maxConcurrent);
+            return this;
+        }
+
+        /**
+         * Sets the time after which requests are cancelled and answered with a timeout error. By default, requests don't time out.
+         * Clients can set a shorter timeout for a single request.
+         * @param timeout The timeout.
+         * @return The changed RPC request method builder.
+         */
+        public RpcParametrizedMethodBuilder<T,R> timeout(Duration timeout) {
+            if(timeout.isNegative() || timeout.isZero()) {
+                throw new IllegalArgumentException("Timeout must be positive: " + timeout);
+            }
+            this.timeout = timeout;
+            return this;
+        }
+
         /**
          * Builds and registers the RPC request method. An identifier is required before building.
+         * <p>
+         * Can't be used for {@link #singleFlight() single-flight} or {@link #memoize(MemoizationCache) memoized} methods, their handler invocations are shared between connections.
          * @param handler A function that is called when a request is received, taking a {@code ManagementHandlerDispatcher}, the data sent in the parameter and a {@code ManagementConnectionId} and returning the data to be sent in the response.
          * @return The created method. Can generally be ignored.
          */
-        @SuppressWarnings("unchecked")
         public IncomingRpcMethod.Parameterized<T,R> build(Function3<ManagementHandlerDispatcher, T, ManagementConnectionId, R> handler) {
+            requireConnectionIndependent();
+            IncomingRpcMethod.Parameterized<T,R> method = registerVanilla();
+            registerRequestMethod(parameterName, parameterCodec, (context, parameter) -> CompletableFuture.completedFuture(handler.apply(context.getDispatcher(), parameter, context.getConnectionId())), caches(memoization));
+            return method;
+        }
+
+        /**
+         * Builds and registers the RPC request method with a handler that doesn't depend on the connection sending the request. An identifier is required before building.
+         * @param handler A function that is called when a request is received, taking a {@code ManagementHandlerDispatcher} and the data sent in the parameter and returning the data to be sent in the response.
+         * @return The created method. Can generally be ignored.
+         */
+        public IncomingRpcMethod.Parameterized<T,R> build(BiFunction<ManagementHandlerDispatcher, T, R> handler) {
+            IncomingRpcMethod.Parameterized<T,R> method = registerVanilla();
+            registerRequestMethod(parameterName, parameterCodec, (context, parameter) -> CompletableFuture.completedFuture(handler.apply(context.getDispatcher(), parameter)), caches(memoization));
+            return method;
+        }
+
+        /**
+         * Builds and registers the RPC request method with an asynchronous handler. An identifier is required before building.
+         * <p>
+         * The response is sent when the returned future completes. The connection processes other requests in the meantime.
+         * If the future completes exceptionally, an error response is sent. Throw or complete with an {@link RpcException} to control the error code.
+         * Can't be used for {@link #singleFlight() single-flight} or {@link #memoize(MemoizationCache) memoized} methods, their handler invocations are shared between connections.
+         * @param handler A function that is called when a request is received, taking a {@code ManagementHandlerDispatcher}, the data sent in the parameter and a {@code ManagementConnectionId} and returning a future completed with the data to be sent in the response.
+         * @return The created method. Can generally be ignored.
+         */
+        public IncomingRpcMethod.Parameterized<T,R> buildAsync(Function3<ManagementHandlerDispatcher, T, ManagementConnectionId, CompletableFuture<R>> handler) {
+            requireConnectionIndependent();
+            IncomingRpcMethod.Parameterized<T,R> method = registerVanilla();
+            registerRequestMethod(parameterName, parameterCodec, (context, parameter) -> handler.apply(context.getDispatcher(), parameter, context.getConnectionId()), caches(memoization));
+            return method;
+        }
+
+        /**
+         * Builds and registers the RPC request method with an asynchronous handler that doesn't depend on the connection sending the request. An identifier is required before building.
+         * <p>
+         * The response is sent when the returned future completes. The connection processes other requests in the meantime.
+         * If the future completes exceptionally, an error response is sent. Throw or complete with an {@link RpcException} to control the error code.
+         * @param handler A function that is called when a request is received, taking a {@code ManagementHandlerDispatcher} and the data sent in the parameter and returning a future completed with the data to be sent in the response.
+         * @return The created method. Can generally be ignored.
+         */
+        public IncomingRpcMethod.Parameterized<T,R> buildAsync(BiFunction<ManagementHandlerDispatcher, T, CompletableFuture<R>> handler) {
+            IncomingRpcMethod.Parameterized<T,R> method = registerVanilla();
+            registerRequestMethod(parameterName, parameterCodec, (context, parameter) -> handler.apply(context.getDispatcher(), parameter), caches(memoization));
+            return method;
+        }
+
+        private void requireConnectionIndependent() {
+            if(singleFlight || memoization != null) {
+                throw new IllegalStateException("Handlers of single-flight and memoized methods are shared between connections and can't take a connection id");
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private IncomingRpcMethod.Parameterized<T,R> registerVanilla() {
             if(identifier == null) {
                 throw new IllegalStateException("Identifier is not set");
             }
 
             IncomingRpcMethod.Builder<IncomingRpcMethod.Parameterized<T,R>> builder = IncomingRpcMethod.createParameterizedBuilder(
-                    handler::apply,
+                    (dispatcher, parameter, connectionId) -> {
+                        throw notDispatched();
+                    },
                     parameterCodec,
                     codec
             ).parameter(
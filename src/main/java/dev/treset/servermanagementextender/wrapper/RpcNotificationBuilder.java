@@ -2,6 +2,9 @@ package dev.treset.servermanagementextender.wrapper;
 
 import com.mojang.serialization.Codec;
 import dev.treset.servermanagementextender.accessors.OutgoingRpcMethodBuilderAccessor;
+import dev.treset.servermanagementextender.notification.DeltaEncoder;
+import dev.treset.servermanagementextender.notification.NotificationPriority;
+import dev.treset.servermanagementextender.notification.RateLimitPolicy;
 import net.minecraft.registry.entry.RegistryEntry;
 import net.minecraft.server.dedicated.management.OutgoingRpcMethod;
 import net.minecraft.server.dedicated.management.RpcRequestParameter;
@@ -9,21 +12,38 @@ import net.minecraft.server.dedicated.management.schema.RpcSchema;
 import net.minecraft.server.dedicated.management.schema.RpcSchemaEntry;
 import net.minecraft.util.Identifier;
 
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+
 /**
  * Allows configuration, building and registering of an RPC notification method.
  * @param <T> The type of object sent by the notification.
  */
 public class RpcNotificationBuilder<T> {
     private String name;
-    private final Codec<T> codec;
+    final Codec<T> codec;
     private final RpcSchema schema;
     private Identifier identifier;
     private String description;
+    int asyncCapacity;
+    boolean batched;
+    Function<T, ?> coalesceKey;
+    final List<SchemaData<T,?>> properties;
+    Function<T, ?> deltaKey;
+    int deltaKeyframeInterval;
+    Set<String> deltaKeyProperties;
+    int deltaMaxKeys = DeltaEncoder.DEFAULT_MAX_KEYS;
+    double rateLimit;
+    int rateLimitBurst;
+    RateLimitPolicy rateLimitPolicy;
+    NotificationPriority priority = NotificationPriority.NORMAL;
 
-    private RpcNotificationBuilder(String name, Codec<T> codec, RpcSchema schema) {
+    private RpcNotificationBuilder(String name, Codec<T> codec, RpcSchema schema, List<SchemaData<T,?>> properties) {
         this.codec = codec;
         this.name = name;
         this.schema = schema;
+        this.properties = properties;
     }
 
     /**
@@ -34,7 +54,7 @@ public class RpcNotificationBuilder<T> {
      * @param <T> The type of object the notification sends.
      */
     public static <T> RpcNotificationBuilder<T> of(Codec<T> codec, RpcSchemaEntry schema) {
-        return new RpcNotificationBuilder<>(schema.name(), codec, schema.schema());
+        return new RpcNotificationBuilder<>(schema.name(), codec, schema.schema(), null);
     }
 
     /**
@@ -44,7 +64,7 @@ public class RpcNotificationBuilder<T> {
      * @param <T> The type of object the notification sends.
      */
     public static <T> RpcNotificationBuilder<T> of(ManagementSchema<T> schema) {
-        return new RpcNotificationBuilder<>(schema.getName(), schema.getCodec(), schema.getSchema());
+        return new RpcNotificationBuilder<>(schema.getName(), schema.getCodec(), schema.getSchema(), schema.getProperties());
     }
 
     /**
@@ -78,6 +98,133 @@ public class RpcNotificationBuilder<T> {
         return this;
     }
 
+    /**
+     * Sends notifications asynchronously with a default queue capacity of 1024.
+     * @return The changed notification method builder.
+     * @see #async(int)
+     */
+    public RpcNotificationBuilder<T> async() {
+        return async(1024);
+    }
+
+    /**
+     * Sends notifications asynchronously.
+     * Sent notifications are added to a bounded queue and encoded and written to the connections by a dedicated sender thread, in the order they were sent.
+     * If the queue is full, further notifications are dropped until there is space again.
+     * @param capacity The maximum amount of notifications waiting to be sent.
+     * @return The changed notification method builder.
+     */
+    public RpcNotificationBuilder<T> async(int capacity) {
+        if(capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        this.asyncCapacity = capacity;
+        return this;
+    }
+
+    /**
+     * Batches notifications per tick.
+     * Sent notifications are held back until the end of the server tick and then sent together with all other batched notifications as JSON-RPC batch frames.
+     * The size of batch frames can be limited using {@link dev.treset.servermanagementextender.notification.NotificationBatcher#setMaxBatchSize(int)} and {@link dev.treset.servermanagementextender.notification.NotificationBatcher#setMaxBatchBytes(int)}.
+     * Can't be combined with {@link #async(int)}.
+     * @return The changed notification method builder.
+     */
+    public RpcNotificationBuilder<T> batched() {
+        this.batched = true;
+        return this;
+    }
+
+    /**
+     * Coalesces notifications by key.
+     * Sent notifications are held back until the end of the server tick and only the latest notification for each key is sent.
+     * Useful for notifications that are sent many times per tick where clients only need the latest value.
+     * @param keyExtractor A function getting the key from the data object. Notifications with equal keys replace each other. A {@code null} key is a key like any other.
+     * @return The changed notification method builder.
+     */
+    public RpcNotificationBuilder<T> coalesce(Function<T, ?> keyExtractor) {
+        if(keyExtractor == null) {
+            throw new IllegalArgumentException("Key extractor must not be null");
+        }
+        this.coalesceKey = keyExtractor;
+        return this;
+    }
+
+    /**
+     * Sends notifications as differences to the last notification of the same key.
+     * Only the key properties and the properties that changed since the last notification of the same key are sent; removed properties are sent as {@code null}.
+     * Every {@code keyframeInterval}-th notification of a key contains all properties.
+     * Notifications where nothing changed are not sent. Clients should merge every notification into their last known state of the key.
+     * Connections that connected or subscribed late or had a notification dropped receive all properties of a key with its next notification.
+     * All properties except the key properties are therefore optional in the notifications, which is added to the description of the notification method.
+     * Requires the notification to be created from a schema built using a schema builder.
+     * @param keyExtractor A function getting the key from the data object.
+     * @param keyframeInterval Every how many notifications of a key all properties are sent.
+     * @param keyProperties The names of the properties that are always sent, usually the properties identifying the key.
+     * @return The changed notification method builder.
+     */
+    public RpcNotificationBuilder<T> delta(Function<T, ?> keyExtractor, int keyframeInterval, String... keyProperties) {
+        if(keyExtractor == null) {
+            throw new IllegalArgumentException("Key extractor must not be null");
+        }
+        if(keyframeInterval <= 0) {
+            throw new IllegalArgumentException("Keyframe interval must be positive: " + keyframeInterval);
+        }
+        this.deltaKey = keyExtractor;
+        this.deltaKeyframeInterval = keyframeInterval;
+        this.deltaKeyProperties = Set.of(keyProperties);
+        return this;
+    }
+
+    /**
+     * Sets how many keys of a delta notification are remembered. Default is {@value DeltaEncoder#DEFAULT_MAX_KEYS}.
+     * If more keys are used, the least recently sent key is forgotten and its next notification contains all properties.
+     * @param maxKeys The maximum amount of keys.
+     * @return The changed notification method builder.
+     */
+    public RpcNotificationBuilder<T> deltaMaxKeys(int maxKeys) {
+        if(maxKeys <= 0) {
+            throw new IllegalArgumentException("Max keys must be positive: " + maxKeys);
+        }
+        this.deltaMaxKeys = maxKeys;
+        return this;
+    }
+
+    /**
+     * Limits how many notifications are sent.
+     * Notifications exceeding the limit are handled according to the policy:
+     * dropped, coalesced into the next allowed notification or counted in a periodic {@code server-management-extender:notification/suppressed} notification.
+     * @param eventsPerSecond The sustained amount of notifications allowed per second.
+     * @param burst The amount of notifications allowed at once.
+     * @param policy What to do with notifications exceeding the limit.
+     * @return The changed notification method builder.
+     */
+    public RpcNotificationBuilder<T> rateLimit(double eventsPerSecond, int burst, RateLimitPolicy policy) {
+        if(!(eventsPerSecond > 0) || burst <= 0) {
+            throw new IllegalArgumentException("Rate limit must be positive: " + eventsPerSecond + " per second, burst " + burst);
+        }
+        if(policy == null) {
+            throw new IllegalArgumentException("Rate limit policy must not be null");
+        }
+        this.rateLimit = eventsPerSecond;
+        this.rateLimitBurst = burst;
+        this.rateLimitPolicy = policy;
+        return this;
+    }
+
+    /**
+     * Sets the priority of the notification. Default is {@link NotificationPriority#NORMAL}.
+     * If a connection can't keep up, notifications with a higher priority are sent before queued notifications with a lower priority.
+     * @param priority The priority of the notification.
+     * @return The changed notification method builder.
+     */
+    public RpcNotificationBuilder<T> priority(NotificationPriority priority) {
+        if(priority == null) {
+            throw new IllegalArgumentException("Priority must not be null");
+        }
+        this.priority = priority;
+        return this;
+    }
+
     /**
      * Builds and registers the notification method. An identifier is required before building.
      * @return An RPC notification handler containing a method to send the notification.
@@ -87,16 +234,37 @@ public class RpcNotificationBuilder<T> {
         if(identifier == null) {
             throw new IllegalStateException("Identifier is not set");
         }
+        if(batched && asyncCapacity > 0) {
+            throw new IllegalStateException("Batched notifications can't be sent asynchronously");
+        }
+        if(deltaKey != null) {
+            if(properties == null || codec == null) {
+                throw new IllegalStateException("Delta notifications require a schema built using a schema builder");
+            }
+            for(String property : deltaKeyProperties) {
+                if(properties.stream().noneMatch(p -> p.name().equals(property))) {
+                    throw new IllegalStateException("Unknown key property: " + property);
+                }
+            }
+        }
 
         OutgoingRpcMethod.Builder<OutgoingRpcMethod.Notification<T>> builder = OutgoingRpcMethod.createNotificationBuilder(codec);
-        if(description != null) {
-            builder.description(description);
+        String fullDescription = description;
+        if(deltaKey != null) {
+            String deltaDescription = "Sent as the difference to the last notification with the same key:"
+                    + " properties other than " + (deltaKeyProperties.isEmpty() ? "the key properties" : String.join(", ", deltaKeyProperties.stream().sorted().toList()))
+                    + " are only present if they changed and are null if they were removed."
+                    + " All properties are sent every " + deltaKeyframeInterval + " notifications of a key.";
+            fullDescription = description == null ? deltaDescription : description + " " + deltaDescription;
+        }
+        if(fullDescription != null) {
+            builder.description(fullDescription);
         }
         builder.requestParameter(new RpcRequestParameter(name, schema));
 
         RegistryEntry.Reference<? extends OutgoingRpcMethod<T, ?>> method = ((OutgoingRpcMethodBuilderAccessor<? extends OutgoingRpcMethod<T, ?>>)builder)
                 .register(identifier);
 
-        return new RpcNotificationHandler<>(method);
+        return new RpcNotificationHandler<>(method, this);
     }
 }
@@ -2,19 +2,100 @@ package dev.treset.servermanagementextender.wrapper;
 
 import com.mojang.serialization.Codec;
 import dev.treset.servermanagementextender.ServerManagementExtender;
+import dev.treset.servermanagementextender.connection.ManagementConnections;
+import dev.treset.servermanagementextender.metrics.NotificationEvent;
+import dev.treset.servermanagementextender.metrics.NotificationMethodMetrics;
+import dev.treset.servermanagementextender.metrics.NotificationMetrics;
+import dev.treset.servermanagementextender.notification.DeltaEncoder;
+import dev.treset.servermanagementextender.notification.NotificationBatcher;
+import dev.treset.servermanagementextender.notification.NotificationCoalescer;
+import dev.treset.servermanagementextender.notification.NotificationFlusher;
+import dev.treset.servermanagementextender.notification.NotificationFrame;
+import dev.treset.servermanagementextender.notification.NotificationQueue;
+import dev.treset.servermanagementextender.notification.NotificationSender;
+import dev.treset.servermanagementextender.notification.NotificationSubscriptions;
+import dev.treset.servermanagementextender.notification.NotificationTopic;
+import dev.treset.servermanagementextender.notification.RateLimiter;
 import net.minecraft.registry.entry.RegistryEntry;
 import net.minecraft.server.dedicated.management.OutgoingRpcMethod;
 import net.minecraft.server.dedicated.management.schema.RpcSchemaEntry;
 
+import java.util.function.Supplier;
+
 /**
  * Allows sending an RPC notification.
  * @param <T> The type of object the notification sends.
  */
 public class RpcNotificationHandler<T> {
     private final RegistryEntry.Reference<? extends OutgoingRpcMethod<T, ?>> method;
+    private final Codec<T> codec;
+    private final NotificationQueue<T> queue;
+    private final NotificationCoalescer<T> coalescer;
+    private final boolean batched;
+    private final NotificationTopic topic;
+    private final DeltaEncoder<T> delta;
+    private final RateLimiter<T> rateLimiter;
+    private final NotificationMethodMetrics metrics;
 
     public RpcNotificationHandler(RegistryEntry.Reference<? extends OutgoingRpcMethod<T, ?>> method) {
+        this(method, (Codec<T>)null);
+    }
+
+    /**
+     * @param method The registered notification method.
+     * @param codec The codec of the notification content. Used to encode each notification once for all connections.
+     *              If {@code null}, every connection encodes the notification itself.
+     */
+    public RpcNotificationHandler(RegistryEntry.Reference<? extends OutgoingRpcMethod<T, ?>> method, Codec<T> codec) {
+        this.method = method;
+        this.codec = codec;
+        this.topic = NotificationSubscriptions.register(method.registryKey().getValue());
+        this.queue = null;
+        this.coalescer = null;
+        this.batched = false;
+        this.delta = null;
+        this.rateLimiter = null;
+        this.metrics = NotificationMetrics.get(method.registryKey().getValue());
+    }
+
+    RpcNotificationHandler(RegistryEntry.Reference<? extends OutgoingRpcMethod<T, ?>> method, RpcNotificationBuilder<T> builder) {
         this.method = method;
+        this.codec = builder.codec;
+        this.topic = NotificationSubscriptions.register(method.registryKey().getValue(), builder.priority);
+        this.metrics = NotificationMetrics.get(method.registryKey().getValue());
+        this.batched = builder.batched;
+        if(builder.deltaKey != null) {
+            this.delta = new DeltaEncoder<>(
+                    method.registryKey().getValue(),
+                    builder.codec,
+                    builder.properties.stream().map(SchemaData::name).toList(),
+                    builder.deltaKeyProperties,
+                    builder.deltaKey,
+                    builder.deltaKeyframeInterval,
+                    builder.deltaMaxKeys
+            );
+        } else {
+            this.delta = null;
+        }
+        if(builder.asyncCapacity > 0) {
+            this.queue = new NotificationQueue<>(builder.asyncCapacity, this::sendNow);
+            NotificationSender.register(queue);
+            metrics.setQueue(queue);
+        } else {
+            this.queue = null;
+        }
+        if(builder.rateLimitPolicy != null) {
+            this.rateLimiter = new RateLimiter<>(method.registryKey().getValue(), builder.rateLimit, builder.rateLimitBurst, builder.rateLimitPolicy, this::deliver);
+            NotificationFlusher.register(rateLimiter::flush);
+        } else {
+            this.rateLimiter = null;
+        }
+        if(builder.coalesceKey != null) {
+            this.coalescer = new NotificationCoalescer<>(builder.coalesceKey, this::dispatch);
+            NotificationFlusher.register(coalescer::flush);
+        } else {
+            this.coalescer = null;
+        }
     }
 
     /**
@@ -40,12 +121,112 @@ public class RpcNotificationHandler<T> {
 
     /**
      * Sends an RPC notification containing the data of the object in the configured format to all clients.
+     * If the handler is asynchronous, the notification is queued and sent by the sender thread.
+     * If the handler coalesces, the notification replaces any pending notification with the same key and is sent at the end of the tick.
+     * If the handler is batched, the notification is sent at the end of the tick in a batch with all other batched notifications.
+     * If the handler is rate limited, notifications exceeding the limit are handled according to the configured policy.
+     * Does nothing if no connection is subscribed to the notification.
+     * Every call is recorded as a {@link NotificationEvent} if the event is enabled in a flight recording.
      * @param data The data object to send.
      */
     public void send(T data) {
+        if(!hasListeners()) {
+            return;
+        }
+        NotificationEvent event = new NotificationEvent();
+        event.begin();
+        if(coalescer != null) {
+            coalescer.put(data);
+        } else {
+            dispatch(data);
+        }
+        if(event.shouldCommit()) {
+            event.method = method.registryKey().getValue().toString();
+            event.connections = ManagementConnections.count();
+            event.commit();
+        }
+    }
+
+    /**
+     * Sends an RPC notification like {@link #send(Object)}, but only creates the data object if any connection receives the notification.
+     * Should be used if creating the data object is expensive.
+     * @param data A supplier creating the data object to send. Not called if no connection receives the notification.
+     */
+    public void sendLazy(Supplier<T> data) {
+        if(!hasListeners()) {
+            return;
+        }
+        send(data.get());
+    }
+
+    /**
+     * Checks whether any open connection receives this notification. Cheap enough to be called before every send.
+     * @return {@code true} if the management server is running and at least one connection receives this notification.
+     */
+    public boolean hasListeners() {
+        return ServerManagementExtender.isInitialized() && topic.hasListeners();
+    }
+
+    private void dispatch(T data) {
+        if(rateLimiter != null) {
+            rateLimiter.send(data);
+        } else {
+            deliver(data);
+        }
+    }
+
+    private void deliver(T data) {
+        if(batched) {
+            if(delta != null) {
+                NotificationFrame frame = delta.encode(data);
+                if(frame != null) {
+                    metrics.recordSent();
+                    NotificationBatcher.add(method, frame, data, topic);
+                }
+            } else {
+                metrics.recordSent();
+                NotificationBatcher.add(method, codec, data, topic);
+            }
+        } else if(queue != null) {
+            queue.offer(data);
+        } else {
+            sendNow(data);
+        }
+    }
+
+    /**
+     * @return The statistics of the asynchronous send queue or {@code null} if this handler sends synchronously.
+     */
+    public NotificationQueue.Statistics getQueueStatistics() {
+        return queue == null ? null : queue.getStatistics();
+    }
+
+    /**
+     * Forgets the last notification sent for a key of a delta notification. The next notification of the key contains all properties.
+     * Should be called when a key is no longer used to free its memory.
+     * @param key The key to forget.
+     */
+    public void forgetDeltaKey(Object key) {
+        if(delta != null) {
+            delta.forget(key);
+        }
+    }
+
+    private void sendNow(T data) {
+        if(delta != null) {
+            NotificationFrame frame = delta.encode(data);
+            if(frame != null) {
+                metrics.recordSent();
+                ServerManagementExtender.notifyAll(method, frame, data, topic);
+            }
+            return;
+        }
+        metrics.recordSent();
         ServerManagementExtender.notifyAll(
                 method,
-                data
+                codec,
+                data,
+                topic
         );
     }
 }
@@ -0,0 +1,120 @@
+package dev.treset.servermanagementextender.wrapper;
+
+import dev.treset.servermanagementextender.request.Page;
+import dev.treset.servermanagementextender.request.PageRequest;
+import dev.treset.servermanagementextender.request.PaginationCursors;
+import net.minecraft.server.dedicated.management.IncomingRpcMethod;
+import net.minecraft.server.dedicated.management.dispatch.ManagementHandlerDispatcher;
+import net.minecraft.util.Identifier;
+
+import java.time.Duration;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Allows configuration, building and registering of an RPC request method returning a list in pages.
+ * <p>
+ * Requests take a {@link PageRequest} parameter and are answered with a {@link Page} containing the items and the cursor of the next page.
+ * The page schema is generated from the item schema.
+ * @param <E> The type of the items in the list.
+ */
+public class RpcPaginatedMethodBuilder<E> {
+    private final ManagementSchema<E> itemSchema;
+    private Identifier identifier;
+    private String description;
+    private int defaultPageSize = 100;
+    private int maxPageSize = 1000;
+    private Duration cursorExpiry = Duration.ofMinutes(1);
+    private int maxCursors = PaginationCursors.DEFAULT_MAX_CURSORS;
+
+    RpcPaginatedMethodBuilder(ManagementSchema<E> itemSchema) {
+        this.itemSchema = itemSchema;
+    }
+
+    /**
+     * Sets the identifier of the RPC request method. Required to be called before building.
+     * @param namespace The namespace of the RPC request method.
+     * @param path The path of the RPC request method.
+     * @return The changed RPC request method builder.
+     */
+    public RpcPaginatedMethodBuilder<E> identifier(String namespace, String path) {
+        this.identifier = Identifier.of(namespace, path);
+        return this;
+    }
+
+    /**
+     * Sets the description of the RPC request method.
+     * @param description The description of the RPC request method.
+     * @return The changed RPC request method builder.
+     */
+    public RpcPaginatedMethodBuilder<E> description(String description) {
+        this.description = description;
+        return this;
+    }
+
+    /**
+     * Sets the amount of items in a page. Default is 100 items if the request doesn't specify a limit and at most 1000 items.
+     * @param defaultSize The amount of items if the request doesn't specify a limit.
+     * @param maxSize The maximum amount of items a request may ask for.
+     * @return The changed RPC request method builder.
+     */
+    public RpcPaginatedMethodBuilder<E> pageSize(int defaultSize, int maxSize) {
+        if(defaultSize <= 0 || maxSize < defaultSize) {
+            throw new IllegalArgumentException("Invalid page size: default " + defaultSize + ", max " + maxSize);
+        }
+        this.defaultPageSize = defaultSize;
+        this.maxPageSize = maxSize;
+        return this;
+    }
+
+    /**
+     * Sets how long a cursor is kept after it was last used. Default is 1 minute.
+     * @param expiry The expiry of cursors.
+     * @return The changed RPC request method builder.
+     */
+    public RpcPaginatedMethodBuilder<E> cursorExpiry(Duration expiry) {
+        if(expiry == null || expiry.isNegative() || expiry.isZero()) {
+            throw new IllegalArgumentException("Expiry must be positive: " + expiry);
+        }
+        this.cursorExpiry = expiry;
+        return this;
+    }
+
+    /**
+     * Sets how many cursors of this method each connection may hold open at the same time. Default is {@value PaginationCursors#DEFAULT_MAX_CURSORS}.
+     * Requests for a first page exceeding the limit are answered with an error until a cursor is exhausted or expires.
+     * @param maxCursors The maximum amount of open cursors per connection.
+     * @return The changed RPC request method builder.
+     */
+    public RpcPaginatedMethodBuilder<E> maxCursors(int maxCursors) {
+        if(maxCursors <= 0) {
+            throw new IllegalArgumentException("Max cursors must be positive: " + maxCursors);
+        }
+        this.maxCursors = maxCursors;
+        return this;
+    }
+
+    /**
+     * Builds and registers the RPC request method. An identifier is required before building.
+     * @param handler A function that is called when the first page is requested, taking a {@code ManagementHandlerDispatcher} and returning a stream of all items.
+     *                The stream is consumed one page at a time and closed when it is exhausted or its cursor expires.
+     * @return The created method. Can generally be ignored.
+     */
+    public IncomingRpcMethod.Parameterized<PageRequest, Page<E>> build(Function<ManagementHandlerDispatcher, Stream<E>> handler) {
+        if(identifier == null) {
+            throw new IllegalStateException("Identifier is not set");
+        }
+
+        PaginationCursors<E> cursors = new PaginationCursors<>(defaultPageSize, maxPageSize, cursorExpiry, maxCursors);
+        ManagementSchema<Page<E>> pageSchema = Page.schema(Identifier.of(identifier.getNamespace(), identifier.getPath().replace('/', '_') + "_page"), itemSchema);
+
+        RpcMethodBuilder.RpcParametrizedMethodBuilder<PageRequest, Page<E>> builder = RpcMethodBuilder.of(pageSchema)
+                .parameter(PageRequest.SCHEMA)
+                .parameterName("page")
+                .identifier(identifier.getNamespace(), identifier.getPath());
+        if(description != null) {
+            builder.description(description);
+        }
+        return builder.build((dispatcher, request, connectionId) -> cursors.page(() -> handler.apply(dispatcher), request, connectionId));
+    }
+}
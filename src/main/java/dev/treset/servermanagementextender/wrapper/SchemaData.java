@@ -7,17 +7,35 @@ import net.minecraft.server.dedicated.management.schema.RpcSchema;
 import java.util.Optional;
 import java.util.function.Function;
 
+/**
+ * A property of a record schema.
+ * @param name The name of the property.
+ * @param codecBuilder The DFU field of the property. {@code null} if the property has no codec.
+ * @param schema The schema of the property.
+ * @param codec The codec of the property value, or of the contained value for optional properties. {@code null} if unknown.
+ * @param getter The function getting the property value from the record. {@code null} if unknown.
+ * @param optional {@code true} if the property value is an {@link Optional} that is omitted when empty.
+ * @param <T> The type of the record.
+ * @param <A> The type of the property value.
+ */
 public record SchemaData<T,A>(
         String name,
         RecordCodecBuilder<T,A> codecBuilder,
-        RpcSchema schema
+        RpcSchema schema,
+        Codec<?> codec,
+        Function<T,A> getter,
+        boolean optional
 ) {
+    public SchemaData(String name, RecordCodecBuilder<T,A> codecBuilder, RpcSchema schema) {
+        this(name, codecBuilder, schema, null, null, false);
+    }
+
     public RpcSchema applyToSchema(RpcSchema schema) {
         return schema.withProperty(name, this.schema);
     }
 
     public static <T,A> SchemaData<T,A> of(String name, Codec<A> codec, RpcSchema schema, Function<T,A> getter) {
-        return new SchemaData<>(name, codec == null ? null : codec.fieldOf(name).forGetter(getter), schema);
+        return new SchemaData<>(name, codec == null ? null : codec.fieldOf(name).forGetter(getter), schema, codec, getter, false);
     }
 
     public static <T,A> SchemaData<T,A> of(String name, ManagementSchema<A> wrapper, Function<T,A> getter) {
@@ -25,7 +43,7 @@ public record SchemaData<T,A>(
     }
 
     public static <T,A> SchemaData<T,Optional<A>> ofOptional(String name, Codec<A> codec, RpcSchema schema, Function<T, Optional<A>> getter) {
-        return new SchemaData<>(name, codec == null ? null : codec.optionalFieldOf(name).forGetter(getter), schema);
+        return new SchemaData<>(name, codec == null ? null : codec.optionalFieldOf(name).forGetter(getter), schema, codec, getter, true);
     }
 
     public static <T,A> SchemaData<T,Optional<A>> ofOptional(String name, ManagementSchema<A> wrapper, Function<T,Optional<A>> getter) {